@@ -5,7 +5,11 @@ import com.microsoft.azure.functions.annotation.AuthorizationLevel;
 import com.microsoft.azure.functions.annotation.BindingName;
 import com.microsoft.azure.functions.annotation.FunctionName;
 import com.microsoft.azure.functions.annotation.HttpTrigger;
+import it.gov.pagopa.reporting.exception.DependencyUnavailableException;
 import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.util.ETags;
+import it.gov.pagopa.reporting.util.FlowContent;
+import it.gov.pagopa.reporting.util.ResponseCompression;
 
 import javax.ws.rs.core.MediaType;
 import java.time.LocalDateTime;
@@ -18,6 +22,8 @@ import java.util.logging.Logger;
  */
 public class GetFlow {
 
+    private static final String RETRY_AFTER_SECONDS = "30";
+
     private String storageConnectionString = System.getenv("FLOW_SA_CONNECTION_STRING");
 
     private String flowsTable = System.getenv("FLOWS_TABLE");
@@ -47,10 +53,41 @@ public class GetFlow {
         FlowsService flowsService = getFlowsServiceInstance(logger);
 
         try {
-            String data = flowsService.fetchFdr1Flow(organizationId, flowId);
-            return request.createResponseBuilder(HttpStatus.OK)
+            // the flow as published by FDR1, compressed with gzip
+            FlowContent gzipXml = flowsService.fetchFdr1FlowGzip(organizationId, flowId, flowDate);
+
+            String etag = ETags.of(gzipXml.openStream());
+            boolean gzip = ResponseCompression.acceptsGzip(request);
+            if (gzip) {
+                etag = ETags.variant(etag, ResponseCompression.GZIP);
+            }
+            if (ETags.matches(ETags.ifNoneMatch(request), etag)) {
+                return request.createResponseBuilder(HttpStatus.NOT_MODIFIED)
+                        .header(ETags.ETAG, etag)
+                        .header(ResponseCompression.VARY, ResponseCompression.ACCEPT_ENCODING)
+                        .build();
+            }
+
+            HttpResponseMessage.Builder response = request.createResponseBuilder(HttpStatus.OK)
                     .header("Content-Type", MediaType.APPLICATION_XML)
-                    .body(data)
+                    .header(ETags.ETAG, etag)
+                    .header(ResponseCompression.VARY, ResponseCompression.ACCEPT_ENCODING);
+            if (gzip) {
+                // forwarded as is, without decompressing it
+                return response
+                        .header(ResponseCompression.CONTENT_ENCODING, ResponseCompression.GZIP)
+                        .body(gzipXml.toByteArray())
+                        .build();
+            }
+            return response.body(FlowsService.gunzip(gzipXml)).build();
+
+        } catch (DependencyUnavailableException e) {
+            logger.log(Level.WARNING, () -> "[GetFlow] GetFlow deferred: " + e.getMessage());
+
+            return request.createResponseBuilder(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Content-Type", "application/json")
+                    .header("Retry-After", RETRY_AFTER_SECONDS)
+                    .body("{\"Error\": \"" + e.getMessage() + "\"}")
                     .build();
 
         } catch (Exception e) {
@@ -6,15 +6,16 @@ import com.microsoft.azure.functions.annotation.BindingName;
 import com.microsoft.azure.functions.annotation.FunctionName;
 import com.microsoft.azure.functions.annotation.HttpTrigger;
 
-import it.gov.pagopa.reporting.model.Fdr3Response;
-import it.gov.pagopa.reporting.model.Flow;
+import it.gov.pagopa.reporting.exception.DependencyUnavailableException;
 import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.util.CompactFlowList;
+import it.gov.pagopa.reporting.util.ETags;
+import it.gov.pagopa.reporting.util.EnvUtil;
+import it.gov.pagopa.reporting.util.FlowListCursor;
+import it.gov.pagopa.reporting.util.RequestHeaders;
+import it.gov.pagopa.reporting.util.ResponseCompression;
 
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -24,11 +25,19 @@ import java.util.logging.Logger;
  */
 public class GetFlowList {
 
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    private static final int MAX_PAGE_SIZE = EnvUtil.getInt("FLOW_LIST_MAX_PAGE_SIZE", 1000);
+
     private String storageConnectionString = System.getenv("FLOW_SA_CONNECTION_STRING");
 
     private String flowsTable = System.getenv("FLOWS_TABLE");
 
-    private String containerBlob = System.getenv("FLOWS_XML_BLOB");
+    private String containerBlob = System.getenv("FLOWS_CONTAINER");
 
     /**
      * This function will be invoked by an incoming HTTP request
@@ -52,20 +61,68 @@ public class GetFlowList {
 
         try {
             String flowDate = request.getQueryParameters().getOrDefault("flowDate", null);
-            Fdr3Response fdr3Response = flowsService.fetchFdr3List(organizationId, flowDate);
-            DateTimeFormatter outputFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
-            List<Flow> responseList = fdr3Response.getData().stream()
-                .map(d -> {
-                    OffsetDateTime offsetFlowDate = OffsetDateTime.parse(d.getFlowDate());
-                    String formattedDate = offsetFlowDate.format(outputFormatter);
-                    return new Flow(d.getFdr(), formattedDate);
-                })
-            .sorted(Comparator.comparing(Flow::getFlowDate).reversed())
-            .toList();
-
-            return request.createResponseBuilder(HttpStatus.OK)
+            String flowDateFrom = request.getQueryParameters().getOrDefault("flowDateFrom", null);
+            String flowDateTo = request.getQueryParameters().getOrDefault("flowDateTo", null);
+
+            // the list is already sorted newest first
+            CompactFlowList flows;
+            if (flowDateFrom != null || flowDateTo != null) {
+                if (flowDateFrom == null || flowDateTo == null || flowDate != null) {
+                    throw new IllegalArgumentException("flowDateFrom and flowDateTo must be both set, and flowDate must not be set.");
+                }
+                flows = flowsService.fetchFdr3Range(organizationId, flowDateFrom, flowDateTo);
+            } else {
+                flows = flowsService.fetchFdr3List(organizationId, flowDate);
+            }
+
+            // a page of the list, if requested
+            String limit = request.getQueryParameters().getOrDefault("limit", null);
+            String cursor = request.getQueryParameters().getOrDefault("cursor", null);
+            String nextCursor = null;
+            if (limit != null || cursor != null) {
+                int from = cursor != null ? FlowListCursor.startIndex(flows, cursor) : 0;
+                int to = Math.min(flows.size(), from + pageSize(limit));
+                CompactFlowList page = flows.slice(from, to);
+                if (to < flows.size()) {
+                    nextCursor = FlowListCursor.next(page);
+                }
+                flows = page;
+            }
+
+            boolean ndjson = acceptsNdjson(request);
+            String body = ndjson ? flows.toNdjson() : flows.toJson();
+            String etag = ndjson ? ETags.variant(flows.getETag(), "ndjson") : flows.getETag();
+            boolean gzip = ResponseCompression.useGzip(request, body);
+            String responseEtag = gzip ? ETags.variant(etag, ResponseCompression.GZIP) : etag;
+            if (ETags.matches(ETags.ifNoneMatch(request), responseEtag)) {
+                return withNextCursor(request.createResponseBuilder(HttpStatus.NOT_MODIFIED), nextCursor)
+                        .header(ETags.ETAG, responseEtag)
+                        .header(ResponseCompression.VARY, ResponseCompression.ACCEPT_ENCODING)
+                        .build();
+            }
+
+            // the flows the client is likely to request next, warmed in the background
+            flowsService.prefetchFdr1Flows(organizationId, flows);
+
+            HttpResponseMessage.Builder response = withNextCursor(request.createResponseBuilder(HttpStatus.OK), nextCursor)
+                    .header("Content-Type", ndjson ? NDJSON : "application/json")
+                    .header(ETags.ETAG, responseEtag)
+                    .header(ResponseCompression.VARY, ResponseCompression.ACCEPT_ENCODING);
+            if (gzip) {
+                return response
+                        .header(ResponseCompression.CONTENT_ENCODING, ResponseCompression.GZIP)
+                        .body(ResponseCompression.gzip(responseEtag, body))
+                        .build();
+            }
+            return response.body(body).build();
+
+        } catch (DependencyUnavailableException e) {
+            logger.log(Level.WARNING, () -> "[GetFlowList] GetFlowList deferred: " + e.getMessage());
+
+            return request.createResponseBuilder(HttpStatus.SERVICE_UNAVAILABLE)
                     .header("Content-Type", "application/json")
-                    .body(responseList)
+                    .header("Retry-After", RETRY_AFTER_SECONDS)
+                    .body("{\"Error\": \"" + e.getMessage() + "\"}")
                     .build();
 
         } catch (Exception e) {
@@ -78,6 +135,26 @@ public class GetFlowList {
         }
     }
 
+    private static int pageSize(String limit) {
+        if (limit == null) {
+            return MAX_PAGE_SIZE;
+        }
+        int pageSize = Integer.parseInt(limit);
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        return pageSize;
+    }
+
+    private static boolean acceptsNdjson(HttpRequestMessage<Optional<String>> request) {
+        String accept = RequestHeaders.get(request, "Accept");
+        return accept != null && accept.contains(NDJSON);
+    }
+
+    private static HttpResponseMessage.Builder withNextCursor(HttpResponseMessage.Builder builder, String nextCursor) {
+        return nextCursor != null ? builder.header(NEXT_CURSOR, nextCursor) : builder;
+    }
+
     protected FlowsService getFlowsServiceInstance(Logger logger) {
         return new FlowsService(this.storageConnectionString, this.flowsTable, this.containerBlob, logger);
     }
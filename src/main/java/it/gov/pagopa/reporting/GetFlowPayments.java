@@ -0,0 +1,131 @@
+package it.gov.pagopa.reporting;
+
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.AuthorizationLevel;
+import com.microsoft.azure.functions.annotation.BindingName;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.HttpTrigger;
+import it.gov.pagopa.reporting.exception.DependencyUnavailableException;
+import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.util.ETags;
+import it.gov.pagopa.reporting.util.EnvUtil;
+import it.gov.pagopa.reporting.util.FlowPaymentIndex;
+
+import javax.ws.rs.core.MediaType;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Azure Functions with Azure Http trigger.
+ * <p>
+ * Returns a page of the single payments of a reporting flow, selected by <code>offset</code> and <code>limit</code>.
+ */
+public class GetFlowPayments {
+
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    private static final String TOTAL_COUNT = "X-Total-Count";
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final int MAX_PAGE_SIZE = EnvUtil.getInt("FLOW_PAYMENTS_MAX_PAGE_SIZE", 1000);
+
+    private String storageConnectionString = System.getenv("FLOW_SA_CONNECTION_STRING");
+
+    private String flowsTable = System.getenv("FLOWS_TABLE");
+
+    private String containerBlob = System.getenv("FLOWS_CONTAINER");
+
+    /**
+     * This function will be invoked by an incoming HTTP request
+     * @return
+     */
+    @FunctionName("GetFlowPayments")
+    public HttpResponseMessage run (
+            @HttpTrigger(name = "GetFlowPaymentsTrigger",
+                    methods = {HttpMethod.GET},
+                    route = "organizations/{organizationId}/reportings/{flowId}/payments",
+                    authLevel = AuthorizationLevel.ANONYMOUS
+            ) HttpRequestMessage<Optional<String>> request,
+            @BindingName("organizationId") String organizationId,
+            @BindingName("flowId") String flowId,
+            final ExecutionContext context) {
+
+        Logger logger = context.getLogger();
+
+        logger.log(Level.INFO, () -> "[GetFlowPayments] RetrieveFlowPayments function executed at: " + LocalDateTime.now());
+
+        FlowsService flowsService = getFlowsServiceInstance(logger);
+
+        try {
+            int offset = parse(request.getQueryParameters().get("offset"), 0, "offset", 0, Integer.MAX_VALUE);
+            int limit = parse(request.getQueryParameters().get("limit"), DEFAULT_PAGE_SIZE, "limit", 1, MAX_PAGE_SIZE);
+
+            FlowPaymentIndex payments = flowsService.fetchFdr1FlowPayments(organizationId, flowId);
+            int from = Math.min(offset, payments.size());
+            byte[] body = payments.page(from, Math.min(payments.size(), from + limit));
+
+            String etag = ETags.of(body);
+            if (ETags.matches(ETags.ifNoneMatch(request), etag)) {
+                return request.createResponseBuilder(HttpStatus.NOT_MODIFIED)
+                        .header(ETags.ETAG, etag)
+                        .header(TOTAL_COUNT, String.valueOf(payments.size()))
+                        .build();
+            }
+
+            return request.createResponseBuilder(HttpStatus.OK)
+                    .header("Content-Type", MediaType.APPLICATION_JSON)
+                    .header(ETags.ETAG, etag)
+                    .header(TOTAL_COUNT, String.valueOf(payments.size()))
+                    .body(body)
+                    .build();
+
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, () -> "[GetFlowPayments] GetFlowPayments bad request: " + e.getMessage());
+
+            return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
+                    .header("Content-Type", "application/json")
+                    .body("{\"Error\": \"" + e.getMessage() + "\"}")
+                    .build();
+
+        } catch (DependencyUnavailableException e) {
+            logger.log(Level.WARNING, () -> "[GetFlowPayments] GetFlowPayments deferred: " + e.getMessage());
+
+            return request.createResponseBuilder(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Content-Type", "application/json")
+                    .header("Retry-After", RETRY_AFTER_SECONDS)
+                    .body("{\"Error\": \"" + e.getMessage() + "\"}")
+                    .build();
+
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, () -> "[GetFlowPayments] GetFlowPayments error: " + e.getLocalizedMessage());
+
+            return request.createResponseBuilder(HttpStatus.NOT_FOUND)
+                    .header("Content-Type", "application/json")
+                    .build();
+        }
+    }
+
+    private static int parse(String value, int defaultValue, String name, int min, int max) {
+        if (value == null) {
+            return defaultValue;
+        }
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            parsed = -1;
+        }
+        if (parsed < min || parsed > max) {
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max + ".");
+        }
+        return parsed;
+    }
+
+    public FlowsService getFlowsServiceInstance(Logger logger) {
+        return new FlowsService(this.storageConnectionString, this.flowsTable, this.containerBlob, logger);
+    }
+
+}
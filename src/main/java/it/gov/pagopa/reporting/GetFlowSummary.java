@@ -0,0 +1,97 @@
+package it.gov.pagopa.reporting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.AuthorizationLevel;
+import com.microsoft.azure.functions.annotation.BindingName;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.HttpTrigger;
+import it.gov.pagopa.reporting.exception.DependencyUnavailableException;
+import it.gov.pagopa.reporting.model.FlowSummary;
+import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.util.ETags;
+
+import javax.ws.rs.core.MediaType;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Azure Functions with Azure Http trigger.
+ * <p>
+ * Returns the header of a reporting flow as JSON, for the clients that do not need the single payments.
+ */
+public class GetFlowSummary {
+
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private String storageConnectionString = System.getenv("FLOW_SA_CONNECTION_STRING");
+
+    private String flowsTable = System.getenv("FLOWS_TABLE");
+
+    private String containerBlob = System.getenv("FLOWS_CONTAINER");
+
+    /**
+     * This function will be invoked by an incoming HTTP request
+     * @return
+     */
+    @FunctionName("GetFlowSummary")
+    public HttpResponseMessage run (
+            @HttpTrigger(name = "GetFlowSummaryTrigger",
+                    methods = {HttpMethod.GET},
+                    route = "organizations/{organizationId}/reportings/{flowId}/summary",
+                    authLevel = AuthorizationLevel.ANONYMOUS
+            ) HttpRequestMessage<Optional<String>> request,
+            @BindingName("organizationId") String organizationId,
+            @BindingName("flowId") String flowId,
+            final ExecutionContext context) {
+
+        Logger logger = context.getLogger();
+
+        logger.log(Level.INFO, () -> "[GetFlowSummary] RetrieveFlowSummary function executed at: " + LocalDateTime.now());
+
+        FlowsService flowsService = getFlowsServiceInstance(logger);
+
+        try {
+            FlowSummary summary = flowsService.fetchFdr1FlowSummary(organizationId, flowId);
+            String body = OBJECT_MAPPER.writeValueAsString(summary);
+
+            String etag = ETags.of(body);
+            if (ETags.matches(ETags.ifNoneMatch(request), etag)) {
+                return request.createResponseBuilder(HttpStatus.NOT_MODIFIED)
+                        .header(ETags.ETAG, etag)
+                        .build();
+            }
+
+            return request.createResponseBuilder(HttpStatus.OK)
+                    .header("Content-Type", MediaType.APPLICATION_JSON)
+                    .header(ETags.ETAG, etag)
+                    .body(body)
+                    .build();
+
+        } catch (DependencyUnavailableException e) {
+            logger.log(Level.WARNING, () -> "[GetFlowSummary] GetFlowSummary deferred: " + e.getMessage());
+
+            return request.createResponseBuilder(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Content-Type", "application/json")
+                    .header("Retry-After", RETRY_AFTER_SECONDS)
+                    .body("{\"Error\": \"" + e.getMessage() + "\"}")
+                    .build();
+
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, () -> "[GetFlowSummary] GetFlowSummary error: " + e.getLocalizedMessage());
+
+            return request.createResponseBuilder(HttpStatus.NOT_FOUND)
+                    .header("Content-Type", "application/json")
+                    .build();
+        }
+    }
+
+    public FlowsService getFlowsServiceInstance(Logger logger) {
+        return new FlowsService(this.storageConnectionString, this.flowsTable, this.containerBlob, logger);
+    }
+
+}
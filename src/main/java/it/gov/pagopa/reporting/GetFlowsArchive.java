@@ -0,0 +1,150 @@
+package it.gov.pagopa.reporting;
+
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.AuthorizationLevel;
+import com.microsoft.azure.functions.annotation.BindingName;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.HttpTrigger;
+import it.gov.pagopa.reporting.exception.DependencyUnavailableException;
+import it.gov.pagopa.reporting.exception.PayloadTooLargeException;
+import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.util.CompactFlowList;
+import it.gov.pagopa.reporting.util.EnvUtil;
+import it.gov.pagopa.reporting.util.IsoDateTime;
+import it.gov.pagopa.reporting.util.SpillBuffer;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Azure Functions with Azure Http trigger.
+ * <p>
+ * Returns the XML of many reporting flows of an organization in a single ZIP archive, selected by a comma-separated
+ * list of <code>flowIds</code> or by a <code>flowDate</code>.
+ */
+public class GetFlowsArchive {
+
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    private static final String ZIP = "application/zip";
+
+    private static final String FAILED_FLOWS = "X-Failed-Flows";
+
+    private static final int MAX_FLOWS = EnvUtil.getInt("FLOW_ARCHIVE_MAX_FLOWS", 1000);
+
+    private static final int SPILL_THRESHOLD_BYTES = EnvUtil.getInt("FLOW_ARCHIVE_SPILL_THRESHOLD_BYTES", 8 * 1024 * 1024);
+
+    // the worker returns the body as a byte array, so the whole archive is loaded on the heap before it is sent
+    private static final long MAX_BYTES = EnvUtil.getLong("FLOW_ARCHIVE_MAX_BYTES", 64L * 1024 * 1024);
+
+    private String storageConnectionString = System.getenv("FLOW_SA_CONNECTION_STRING");
+
+    private String flowsTable = System.getenv("FLOWS_TABLE");
+
+    private String containerBlob = System.getenv("FLOWS_CONTAINER");
+
+    /**
+     * This function will be invoked by an incoming HTTP request
+     * @return
+     */
+    @FunctionName("GetFlowsArchive")
+    public HttpResponseMessage run (
+            @HttpTrigger(name = "GetFlowsArchiveTrigger",
+                    methods = {HttpMethod.GET},
+                    route = "organizations/{organizationId}/reportings/archive",
+                    authLevel = AuthorizationLevel.ANONYMOUS
+            ) HttpRequestMessage<Optional<String>> request,
+            @BindingName("organizationId") String organizationId,
+            final ExecutionContext context) {
+
+        Logger logger = context.getLogger();
+
+        logger.log(Level.INFO, () -> "[GetFlowsArchive] RetrieveFlowsArchive function executed at: " + LocalDateTime.now());
+
+        FlowsService flowsService = getFlowsServiceInstance(logger);
+
+        try {
+            String flowIds = request.getQueryParameters().get("flowIds");
+            String flowDate = request.getQueryParameters().get("flowDate");
+            if ((flowIds == null) == (flowDate == null)) {
+                throw new IllegalArgumentException("Exactly one of flowIds and flowDate must be set.");
+            }
+
+            // flowId -> flowDate, when known
+            Map<String, String> flows = new LinkedHashMap<>();
+            if (flowIds != null) {
+                for (String flowId : flowIds.split(",")) {
+                    if (!flowId.isBlank()) {
+                        flows.put(flowId.trim(), null);
+                    }
+                }
+            } else {
+                CompactFlowList list = flowsService.fetchFdr3List(organizationId, flowDate);
+                for (int i = 0; i < list.size(); i++) {
+                    flows.put(list.getFlowId(i), IsoDateTime.formatLocal(list.getFlowDate(i)));
+                }
+            }
+            if (flows.size() > MAX_FLOWS) {
+                throw new IllegalArgumentException("At most " + MAX_FLOWS + " flows can be archived.");
+            }
+
+            // the archive is moved to a temporary file when it grows large
+            SpillBuffer archive = new SpillBuffer(SPILL_THRESHOLD_BYTES, "flow-archive");
+            List<String> failed;
+            try (archive) {
+                failed = flowsService.writeFlowsArchive(organizationId, flows, archive, MAX_BYTES);
+            }
+            logger.log(Level.INFO, () -> String.format("[GetFlowsArchive] archived %d flows in %d bytes, %d failed",
+                    flows.size() - failed.size(), archive.size(), failed.size()));
+
+            return request.createResponseBuilder(HttpStatus.OK)
+                    .header("Content-Type", ZIP)
+                    .header("Content-Disposition", "attachment; filename=\"" + organizationId + "-flows.zip\"")
+                    .header(FAILED_FLOWS, String.valueOf(failed.size()))
+                    .body(archive.toByteArray())
+                    .build();
+
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, () -> "[GetFlowsArchive] GetFlowsArchive bad request: " + e.getMessage());
+
+            return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
+                    .header("Content-Type", "application/json")
+                    .body("{\"Error\": \"" + e.getMessage() + "\"}")
+                    .build();
+
+        } catch (PayloadTooLargeException e) {
+            logger.log(Level.WARNING, () -> "[GetFlowsArchive] GetFlowsArchive too large: " + e.getMessage());
+
+            return request.createResponseBuilder(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .header("Content-Type", "application/json")
+                    .body("{\"Error\": \"" + e.getMessage() + " Request fewer flows.\"}")
+                    .build();
+
+        } catch (DependencyUnavailableException e) {
+            logger.log(Level.WARNING, () -> "[GetFlowsArchive] GetFlowsArchive deferred: " + e.getMessage());
+
+            return request.createResponseBuilder(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Content-Type", "application/json")
+                    .header("Retry-After", RETRY_AFTER_SECONDS)
+                    .body("{\"Error\": \"" + e.getMessage() + "\"}")
+                    .build();
+
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, () -> "[GetFlowsArchive] GetFlowsArchive error: " + e.getLocalizedMessage());
+
+            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .header("Content-Type", "application/json")
+                    .build();
+        }
+    }
+
+    public FlowsService getFlowsServiceInstance(Logger logger) {
+        return new FlowsService(this.storageConnectionString, this.flowsTable, this.containerBlob, logger);
+    }
+
+}
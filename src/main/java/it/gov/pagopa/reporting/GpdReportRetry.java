@@ -0,0 +1,43 @@
+package it.gov.pagopa.reporting;
+
+import com.microsoft.azure.functions.ExecutionContext;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.TimerTrigger;
+import it.gov.pagopa.reporting.model.RetryQueueMetrics;
+import it.gov.pagopa.reporting.service.GpdRetryQueue;
+
+import java.time.LocalDateTime;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Azure Functions with Timer trigger.
+ */
+public class GpdReportRetry {
+
+    /**
+     * This function will be invoked every minute
+     */
+    @FunctionName("GpdReportRetry")
+    public void run(
+            @TimerTrigger(name = "GpdReportRetryTrigger", schedule = "0 */1 * * * *") String timerInfo,
+            final ExecutionContext context) {
+
+        Logger logger = context.getLogger();
+        logger.log(Level.FINE, () -> "[GpdReportRetry] function executed at: " + LocalDateTime.now());
+
+        GpdRetryQueue retryQueue = getGpdRetryQueueInstance();
+
+        long start = System.currentTimeMillis();
+        int drained = retryQueue.drainDue() + retryQueue.drainSpilled();
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+
+        RetryQueueMetrics metrics = retryQueue.getMetrics();
+        logger.log(Level.INFO, () -> String.format("[GpdReportRetry] drained %d reports in %d ms (%.1f/s), queue metrics: %s",
+                drained, elapsed, drained * 1000.0 / elapsed, metrics));
+    }
+
+    protected GpdRetryQueue getGpdRetryQueueInstance() {
+        return GpdRetryQueue.getInstance();
+    }
+}
@@ -1,16 +1,25 @@
 package it.gov.pagopa.reporting;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.mashape.unirest.http.HttpResponse;
-import com.mashape.unirest.http.Unirest;
 import com.microsoft.azure.functions.ExecutionContext;
 import com.microsoft.azure.functions.annotation.Cardinality;
 import com.microsoft.azure.functions.annotation.EventHubTrigger;
 import com.microsoft.azure.functions.annotation.FunctionName;
+import it.gov.pagopa.reporting.model.ReportOutcome;
 import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import it.gov.pagopa.reporting.model.ReportingSyncStats;
+import it.gov.pagopa.reporting.service.GpdClient;
+import it.gov.pagopa.reporting.service.GpdReportBatcher;
+import it.gov.pagopa.reporting.service.GpdReportDispatcher;
+import it.gov.pagopa.reporting.service.GpdRetryQueue;
+import it.gov.pagopa.reporting.service.ReportedTransferLedger;
+import it.gov.pagopa.reporting.util.EnvUtil;
+import it.gov.pagopa.reporting.util.ReportedIUVEventDecoder;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,8 +28,16 @@ import java.util.logging.Logger;
  */
 public class GpdReportingSync {
 
+    // the batch summary is logged at WARNING when a lane has more tasks waiting than this
+    private static final int LANE_QUEUE_DEPTH_WARN = EnvUtil.getInt("GPD_LANE_QUEUE_DEPTH_WARN", 50);
+
     private String gpdBasePath = System.getenv("GPD_BASE_PATH");
     private String gpdSubeKey = System.getenv("GPD_SUBKEY");
+    private String gpdBulkReportPath = System.getenv("GPD_BULK_REPORT_PATH");
+
+    private String storageConnectionString = System.getenv("FLOW_SA_CONNECTION_STRING");
+
+    private String reportedTransfersTable = System.getenv("REPORTED_TRANSFERS_TABLE");
 
 
     /**
@@ -42,17 +59,16 @@ public class GpdReportingSync {
         Logger logger = context.getLogger();
         logger.log(Level.FINE, () -> "[GpdReportingSync] function executed at: " + LocalDateTime.now());
 
-        ObjectMapper objectMapper = new ObjectMapper();
-
-
+        List<ReportedIUVEventModel> events = new ArrayList<>(items.size());
+        int malformed = 0;
         for (String event : items) {
-            ReportedIUVEventModel reportedIUVEventModel;
-            try {
-                reportedIUVEventModel = objectMapper.readValue(event, ReportedIUVEventModel.class);
-            } catch (Exception e) {
+            Optional<ReportedIUVEventModel> decoded = ReportedIUVEventDecoder.decode(event);
+            if (decoded.isEmpty()) {
                 logger.log(Level.WARNING, () -> "[GpdReportingSync] The message was ignored because it wasn't parsed correctly. msg=[" + event + "]");
+                malformed++;
                 continue;
             }
+            ReportedIUVEventModel reportedIUVEventModel = decoded.get();
 
             // In FDR-1, transferId is not mandatory if there is only one transfer;
             // If ID_TRANSFER is null override with 1.
@@ -60,23 +76,97 @@ public class GpdReportingSync {
                 reportedIUVEventModel.setIdTransfer(1L);
             }
 
-            gpdReport(logger, reportedIUVEventModel.getDomainId(), reportedIUVEventModel.getIuv(), String.valueOf(reportedIUVEventModel.getIdTransfer()));
+            events.add(reportedIUVEventModel);
+        }
+        if (malformed > 0) {
+            int batchMalformed = malformed;
+            logger.log(Level.WARNING, () -> String.format("[GpdReportingSync] %d malformed events ignored in the batch, %d since the instance started",
+                    batchMalformed, ReportedIUVEventDecoder.getMalformedCount()));
+        }
+
+        // skip the transfers already acknowledged by GPD (e.g. on Event Hub redelivery)
+        ReportedTransferLedger ledger = getReportedTransferLedgerInstance(logger);
+        List<ReportedIUVEventModel> toReport = ledger.filterNotReported(events);
+        int duplicates = events.size() - toReport.size();
+        if (duplicates > 0) {
+            logger.log(Level.INFO, () -> "[GpdReportingSync] " + duplicates + " events skipped because already reported");
+        }
+
+        // the transfers of the same organization are coalesced in bulk requests when GPD exposes the bulk route
+        GpdClient gpdClient = getGpdClientInstance(logger);
+        List<List<ReportedIUVEventModel>> groups;
+        if (gpdClient.isBulkEnabled()) {
+            GpdReportBatcher batcher = new GpdReportBatcher();
+            toReport.forEach(batcher::add);
+            groups = batcher.drain();
+        } else {
+            groups = toReport.stream().map(List::of).toList();
         }
 
+        // the calls run in parallel, but the function returns only when all of them are completed,
+        // so the batch is checkpointed only after every event has been processed
+        List<ReportOutcome> outcomes = getGpdReportDispatcherInstance(logger).dispatchGroups(groups,
+                group -> gpdBulkReport(logger, gpdClient, group));
+
+        ledger.markReported(outcomes);
+
+        // failed reports are retried in background, with backoff, instead of being lost
+        getGpdRetryQueueInstance().enqueueAll(outcomes);
+
+        logOutcomes(logger, outcomes);
     }
 
-    public void gpdReport(Logger logger, String organizationId, String iuv, String transferId) {
-        try {
-            HttpResponse<String> response = Unirest.post(gpdBasePath + "/organizations/" + organizationId + "/paymentoptions/" + iuv + "/transfers/" + transferId + "/report")
-                    .header("accept", "application/json")
-                    .header("ocp-apim-subscription-key", gpdSubeKey)
-                    .asString();
-            if (response.getStatus() != 200) {
-                logger.log(Level.SEVERE, () -> "[GpdReportingSync] GPD client failed with status " + response.getStatus() + " body:" + response.getBody());
+    public List<GpdClient.ReportResult> gpdBulkReport(Logger logger, GpdClient gpdClient, List<ReportedIUVEventModel> group) {
+        if (group.size() > 1) {
+            GpdClient.BulkResult result = gpdClient.bulkReport(group.get(0).getDomainId(), group);
+            if (result == GpdClient.BulkResult.REPORTED) {
+                return group.stream().map(e -> GpdClient.ReportResult.REPORTED).toList();
             }
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, () -> "[GpdReportingSync] GPD client Exception: " + e.getLocalizedMessage());
+            logger.log(Level.WARNING, () -> "[GpdReportingSync] bulk report " + result + ", reporting " + group.size() + " transfers one by one");
         }
+        return group.stream()
+                .map(e -> gpdReport(logger, e.getDomainId(), e.getIuv(), String.valueOf(e.getIdTransfer())))
+                .toList();
+    }
+
+    public GpdClient.ReportResult gpdReport(Logger logger, String organizationId, String iuv, String transferId) {
+        return getGpdClientInstance(logger).report(organizationId, iuv, transferId);
+    }
+
+    protected GpdClient getGpdClientInstance(Logger logger) {
+        return new GpdClient(this.gpdBasePath, this.gpdSubeKey, this.gpdBulkReportPath, logger);
+    }
+
+    protected GpdReportDispatcher getGpdReportDispatcherInstance(Logger logger) {
+        return new GpdReportDispatcher(logger);
+    }
+
+    protected GpdRetryQueue getGpdRetryQueueInstance() {
+        return GpdRetryQueue.getInstance();
+    }
+
+    protected ReportedTransferLedger getReportedTransferLedgerInstance(Logger logger) {
+        return new ReportedTransferLedger(this.storageConnectionString, this.reportedTransfersTable, logger);
+    }
+
+    public static ReportingSyncStats getStats() {
+        return ReportingSyncStats.builder()
+                .malformedEvents(ReportedIUVEventDecoder.getMalformedCount())
+                .laneQueueDepths(GpdReportDispatcher.getLaneQueueDepths())
+                .build();
+    }
+
+    private void logOutcomes(Logger logger, List<ReportOutcome> outcomes) {
+        long reported = outcomes.stream().filter(ReportOutcome::isReported).count();
+        // the transfers rejected by GPD are logged once by the client and not retried
+        outcomes.stream()
+                .filter(ReportOutcome::isRetryable)
+                .forEach(o -> logger.log(Level.WARNING, () -> String.format("[GpdReportingSync] transfer not reported, scheduled for retry: organizationId=%s iuv=%s transferId=%s status=%s",
+                        o.getOrganizationId(), o.getIuv(), o.getTransferId(), o.getStatus())));
+        int[] depths = GpdReportDispatcher.getLaneQueueDepths();
+        Level level = Arrays.stream(depths).anyMatch(d -> d > LANE_QUEUE_DEPTH_WARN) ? Level.WARNING : Level.FINE;
+        logger.log(level, () -> String.format("[GpdReportingSync] batch completed: %d events, %d reported, %d not reported, lanes queue depth %s",
+                outcomes.size(), reported, outcomes.size() - reported, Arrays.toString(depths)));
     }
 
 
@@ -5,8 +5,13 @@ import com.microsoft.azure.functions.annotation.AuthorizationLevel;
 import com.microsoft.azure.functions.annotation.FunctionName;
 import com.microsoft.azure.functions.annotation.HttpTrigger;
 import it.gov.pagopa.reporting.model.AppInfo;
+import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.service.GpdRetryQueue;
+import it.gov.pagopa.reporting.util.DependencyGuard;
+import it.gov.pagopa.reporting.util.ResponseCompression;
 
 import java.io.InputStream;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.logging.Level;
@@ -51,6 +56,14 @@ public class Info {
 		} catch (Exception e) {
 			logger.severe("Impossible to retrieve information from pom.properties file.");
 		}
-		return AppInfo.builder().version(version).environment("azure-fn").name(name).build();
+		return AppInfo.builder().version(version).environment("azure-fn").name(name)
+				.dependencies(DependencyGuard.all().stream().map(DependencyGuard::getStatus).toList())
+				.retryQueue(GpdRetryQueue.getInstanceMetrics())
+				.reportingSync(GpdReportingSync.getStats())
+				.caches(List.of(FlowsService.getFdr3ListCacheStats(), FlowsService.getFdr1FlowDiskCacheStats(),
+						FlowsService.getFlowPaymentsCacheStats(), ResponseCompression.getCacheStats()))
+				.coalescing(FlowsService.getCoalescingStats())
+				.prefetch(List.of(FlowsService.getPrefetchStats()))
+				.build();
 	}
 }
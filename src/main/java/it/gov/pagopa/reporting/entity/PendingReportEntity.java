@@ -0,0 +1,27 @@
+package it.gov.pagopa.reporting.entity;
+
+import com.microsoft.azure.storage.table.TableServiceEntity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class PendingReportEntity extends TableServiceEntity {
+
+    private String iuv;
+    private String transferId;
+    private int attempts;
+    private long nextAttemptAt;
+
+    public PendingReportEntity(String organizationId, String iuv, String transferId, int attempts, long nextAttemptAt) {
+        this.partitionKey = organizationId;
+        this.rowKey = ReportedTransferEntity.rowKey(iuv, transferId);
+        this.iuv = iuv;
+        this.transferId = transferId;
+        this.attempts = attempts;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+}
@@ -0,0 +1,25 @@
+package it.gov.pagopa.reporting.entity;
+
+import com.microsoft.azure.storage.table.TableServiceEntity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReportedTransferEntity extends TableServiceEntity {
+
+    private String reportedAt;
+
+    public ReportedTransferEntity(String organizationId, String iuv, String transferId, String reportedAt) {
+        this.partitionKey = organizationId;
+        this.rowKey = rowKey(iuv, transferId);
+        this.reportedAt = reportedAt;
+    }
+
+    public static String rowKey(String iuv, String transferId) {
+        return iuv + "_" + transferId;
+    }
+
+}
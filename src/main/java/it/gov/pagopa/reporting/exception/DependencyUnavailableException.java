@@ -0,0 +1,12 @@
+package it.gov.pagopa.reporting.exception;
+
+/**
+ * Thrown when a call to an external dependency is rejected without being attempted, because its
+ * circuit breaker is open or its concurrency limit is exhausted.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    public DependencyUnavailableException(String message) {
+        super(message);
+    }
+}
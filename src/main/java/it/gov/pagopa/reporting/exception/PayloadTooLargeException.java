@@ -0,0 +1,11 @@
+package it.gov.pagopa.reporting.exception;
+
+/**
+ * Thrown when a response would grow over the size that can be returned by the function.
+ */
+public class PayloadTooLargeException extends RuntimeException {
+
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
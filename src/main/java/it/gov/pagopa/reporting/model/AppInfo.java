@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
+import java.util.List;
+
 @Data
 @Builder(toBuilder = true)
 @NoArgsConstructor
@@ -15,4 +17,10 @@ public class AppInfo {
     private String name;
     private String version;
     private String environment;
+    private List<DependencyStatus> dependencies;
+    private RetryQueueMetrics retryQueue;
+    private ReportingSyncStats reportingSync;
+    private List<CacheStats> caches;
+    private List<CoalescingStats> coalescing;
+    private List<PrefetchStats> prefetch;
 }
@@ -0,0 +1,26 @@
+package it.gov.pagopa.reporting.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Counters of a single-flight layer: the calls received and how many of them joined an in-flight one.
+ */
+@NoArgsConstructor
+@Getter
+@ToString
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CoalescingStats {
+
+    private String name;
+    private long calls;
+    private long collapsed;
+    private int inFlight;
+}
@@ -0,0 +1,26 @@
+package it.gov.pagopa.reporting.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Current state of the guard in front of an external dependency.
+ */
+@NoArgsConstructor
+@Getter
+@ToString
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DependencyStatus {
+
+    private String name;
+    private String circuitState;
+    private int concurrencyLimit;
+    private int inFlight;
+}
@@ -0,0 +1,31 @@
+package it.gov.pagopa.reporting.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Single payment of a reporting flow (datiSingoliPagamenti).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FlowPayment {
+
+    // identificativoUnivocoVersamento
+    String iuv;
+    // identificativoUnivocoRiscossione
+    String iur;
+    // indiceDatiSingoloPagamento
+    Integer transferIndex;
+    // singoloImportoPagato
+    BigDecimal amount;
+    // codiceEsitoSingoloPagamento
+    String outcome;
+    // dataEsitoSingoloPagamento
+    String outcomeDate;
+}
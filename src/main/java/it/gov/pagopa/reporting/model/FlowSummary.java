@@ -0,0 +1,37 @@
+package it.gov.pagopa.reporting.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Header of a reporting flow, without the single payments.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FlowSummary {
+
+    // identificativoFlusso
+    String flowId;
+    // dataOraFlusso
+    String flowDate;
+    // identificativoUnivocoRegolamento
+    String regulationId;
+    // dataRegolamento
+    String regulationDate;
+    // istitutoMittente
+    String pspId;
+    String pspName;
+    // istitutoRicevente
+    String organizationId;
+    String organizationName;
+    // numeroTotalePagamenti
+    Long totalPayments;
+    // importoTotalePagamenti
+    BigDecimal totalAmount;
+}
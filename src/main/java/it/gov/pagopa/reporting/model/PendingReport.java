@@ -0,0 +1,29 @@
+package it.gov.pagopa.reporting.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Transfer whose report to GPD failed and has to be retried.
+ */
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PendingReport {
+
+    private String organizationId;
+    private String iuv;
+    private String transferId;
+
+    /**
+     * Number of report attempts already failed.
+     */
+    private int attempts;
+
+    /**
+     * Epoch millis before which the report must not be retried.
+     */
+    private long nextAttemptAt;
+}
@@ -0,0 +1,31 @@
+package it.gov.pagopa.reporting.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Counters of a prefetch stage: the entries loaded in the background and how many of them were then requested,
+ * used to tune how many entries are prefetched.
+ */
+@NoArgsConstructor
+@Getter
+@ToString
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PrefetchStats {
+
+    private String name;
+    private long submitted;
+    private long rejected;
+    private long loaded;
+    private long failed;
+    private long used;
+    private long wasted;
+    private int pending;
+}
@@ -0,0 +1,36 @@
+package it.gov.pagopa.reporting.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Result of the GPD report call made for a single event of an Event Hub batch.
+ */
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ReportOutcome {
+
+    public enum Status {
+        REPORTED,
+        // to be retried
+        FAILED,
+        // refused by GPD, not retried
+        REJECTED
+    }
+
+    private String organizationId;
+    private String iuv;
+    private String transferId;
+    private Status status;
+
+    public boolean isReported() {
+        return status == Status.REPORTED;
+    }
+
+    public boolean isRetryable() {
+        return status == Status.FAILED;
+    }
+}
@@ -0,0 +1,21 @@
+package it.gov.pagopa.reporting.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of the counters of the Event Hub reporting sync of the function instance.
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ReportingSyncStats {
+
+    private long malformedEvents;
+    // for each GPD report lane, the tasks waiting to be run
+    private int[] laneQueueDepths;
+}
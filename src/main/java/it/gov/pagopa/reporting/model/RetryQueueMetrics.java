@@ -0,0 +1,27 @@
+package it.gov.pagopa.reporting.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of the counters of the GPD report retry queue.
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class RetryQueueMetrics {
+
+    private int depth;
+    private long enqueued;
+    private long spilled;
+    // written to the table while held in memory
+    private long persisted;
+    private long retried;
+    private long succeeded;
+    private long exhausted;
+    private long dropped;
+}
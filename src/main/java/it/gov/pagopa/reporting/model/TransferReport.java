@@ -6,14 +6,15 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
-import java.util.List;
-
+/**
+ * Single transfer of a bulk report request sent to GPD.
+ */
 @NoArgsConstructor
 @Getter
 @Builder(toBuilder = true)
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
-public class Fdr3Response {
-    private Fdr3Metadata metadata;
-    private int count;
-    private List<Fdr3Data> data;
+public class TransferReport {
+
+    private String iuv;
+    private String transferId;
 }
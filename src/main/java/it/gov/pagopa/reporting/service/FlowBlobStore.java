@@ -0,0 +1,196 @@
+package it.gov.pagopa.reporting.service;
+
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.models.BlobDownloadResponse;
+import com.azure.storage.blob.models.BlobErrorCode;
+import com.azure.storage.blob.models.BlobHttpHeaders;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import it.gov.pagopa.reporting.model.FlowSummary;
+import it.gov.pagopa.reporting.util.EnvUtil;
+import it.gov.pagopa.reporting.util.FlowContent;
+import it.gov.pagopa.reporting.util.FlowSummaryParser;
+import it.gov.pagopa.reporting.util.IsoDateTime;
+import it.gov.pagopa.reporting.util.NamedThreadFactory;
+import it.gov.pagopa.reporting.util.SpillBuffer;
+
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copies of the FDR1 reporting flows on Blob Storage, shared by all the function instances.
+ * <p>
+ * Blobs follow the layout of the <code>FLOWS_CONTAINER</code> container, <code>{flowDate}##{org}##{flowId}.xml</code>,
+ * and are stored compressed with gzip (<code>Content-Encoding: gzip</code>). Blobs without that encoding, written
+ * before, are compressed when they are read.
+ * <p>
+ * Writes are done in the background by a bounded executor and never overwrite an existing blob. The name of a written
+ * blob comes from the flow itself, its <code>identificativoFlusso</code> and <code>dataOraFlusso</code>, never from
+ * the request, so a client cannot add blobs to the shared container. Any storage error is logged and the flow is
+ * treated as missing: FDR1 stays the source of truth.
+ * <p>
+ * Organization and flow ids are part of the blob name, only {@link #isValidId(String) safe ids} are looked up.
+ */
+public class FlowBlobStore {
+
+    private static final String GZIP = "gzip";
+
+    private static final Pattern SAFE_ID = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,99}");
+
+    private static final int SPILL_THRESHOLD_BYTES = EnvUtil.getInt("FDR1_FLOW_SPILL_THRESHOLD_BYTES", 8 * 1024 * 1024);
+
+    // write-backs beyond the queue are dropped, the flow is written again by a later miss
+    private static final ExecutorService WRITE_EXECUTOR = new ThreadPoolExecutor(
+            EnvUtil.getInt("FLOW_BLOB_WRITE_THREADS", 2), EnvUtil.getInt("FLOW_BLOB_WRITE_THREADS", 2),
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(EnvUtil.getInt("FLOW_BLOB_WRITE_QUEUE_SIZE", 100)),
+            new NamedThreadFactory("flow-blob-write"));
+
+    // the clients are thread-safe and expensive to build, the container is created once
+    private static final Map<String, BlobContainerClient> CONTAINERS = new ConcurrentHashMap<>();
+
+    private final String storageConnectionString;
+    private final String containerBlob;
+    private final Logger logger;
+
+    public FlowBlobStore(String storageConnectionString, String containerBlob, Logger logger) {
+        this.storageConnectionString = storageConnectionString;
+        this.containerBlob = containerBlob;
+        this.logger = logger;
+    }
+
+    /**
+     * @return whether the organization or flow id can be part of a blob name: letters, digits, '.', '_' and '-'
+     */
+    public static boolean isValidId(String value) {
+        return value != null && SAFE_ID.matcher(value).matches();
+    }
+
+    public static String blobName(String organizationId, String flowId, String flowDate) {
+        // dataOra##idPa##idflow.xml
+        return flowDate + "##" + organizationId + "##" + flowId + ".xml";
+    }
+
+    /**
+     * @return the flow compressed with gzip, or null if missing or not readable
+     */
+    public FlowContent read(String organizationId, String flowId, String flowDate) {
+        String blobName = blobName(organizationId, flowId, flowDate);
+        try {
+            BlobClient blobClient = getContainer().getBlobClient(blobName);
+            SpillBuffer content = new SpillBuffer(SPILL_THRESHOLD_BYTES, "flow-blob");
+            BlobDownloadResponse response;
+            try (content) {
+                response = blobClient.downloadStreamWithResponse(content, null, null, null, false, null, Context.NONE);
+            }
+            if (GZIP.equalsIgnoreCase(response.getDeserializedHeaders().getContentEncoding())) {
+                return content;
+            }
+            logger.log(Level.INFO, () -> String.format("[FlowBlobStore] compressing blob %s", blobName));
+            return gzip(content);
+        } catch (BlobStorageException e) {
+            if (!BlobErrorCode.BLOB_NOT_FOUND.equals(e.getErrorCode()) && !BlobErrorCode.CONTAINER_NOT_FOUND.equals(e.getErrorCode())) {
+                logger.log(Level.WARNING, () -> String.format("[FlowBlobStore] unable to read blob %s: %s", blobName, e.getMessage()));
+            }
+            return null;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, () -> String.format("[FlowBlobStore] unable to read blob %s: %s", blobName, e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Writes the flow, compressed with gzip, in the background, named after the date-time in its header.
+     *
+     * @return completed when the blob is written, already existing, skipped or the write failed
+     */
+    public CompletableFuture<Void> writeAsync(String organizationId, String flowId, FlowContent gzipXml) {
+        try {
+            return CompletableFuture.runAsync(() -> write(organizationId, flowId, gzipXml), WRITE_EXECUTOR);
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.WARNING, () -> "[FlowBlobStore] write-back queue full, flow not stored: " + flowId);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void write(String organizationId, String flowId, FlowContent gzipXml) {
+        String flowDate;
+        try {
+            flowDate = flowDateOf(flowId, gzipXml);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, () -> String.format("[FlowBlobStore] unable to read the header of flow %s: %s", flowId, e.getMessage()));
+            return;
+        }
+        if (!isValidId(organizationId) || flowDate == null) {
+            logger.log(Level.WARNING, () -> String.format("[FlowBlobStore] flow %s of %s not stored, no valid name", flowId, organizationId));
+            return;
+        }
+        String blobName = blobName(organizationId, flowId, flowDate);
+        try (InputStream in = gzipXml.openStream()) {
+            BlobClient blobClient = getContainer().getBlobClient(blobName);
+            blobClient.uploadWithResponse(new BlobParallelUploadOptions(BinaryData.fromStream(in, gzipXml.size()))
+                    .setHeaders(new BlobHttpHeaders().setContentEncoding(GZIP).setContentType(MediaType.APPLICATION_XML))
+                    // a published flow does not change, the first copy is kept
+                    .setRequestConditions(new BlobRequestConditions().setIfNoneMatch("*")), null, Context.NONE);
+            logger.log(Level.INFO, () -> String.format("[FlowBlobStore] stored blob %s of %d bytes", blobName, gzipXml.size()));
+        } catch (BlobStorageException e) {
+            if (!BlobErrorCode.BLOB_ALREADY_EXISTS.equals(e.getErrorCode())) {
+                logger.log(Level.WARNING, () -> String.format("[FlowBlobStore] unable to store blob %s: %s", blobName, e.getMessage()));
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, () -> String.format("[FlowBlobStore] unable to store blob %s: %s", blobName, e.getMessage()));
+        }
+    }
+
+    /**
+     * @return the dataOraFlusso of the flow, or null if the flow is not the expected one or its date-time is not valid
+     */
+    static String flowDateOf(String flowId, FlowContent gzipXml) throws Exception {
+        FlowSummary summary;
+        try (InputStream xml = new GZIPInputStream(gzipXml.openStream())) {
+            summary = FlowSummaryParser.parse(xml);
+        }
+        if (!flowId.equals(summary.getFlowId()) || !IsoDateTime.isDateTime(summary.getFlowDate())) {
+            return null;
+        }
+        return summary.getFlowDate();
+    }
+
+    private BlobContainerClient getContainer() {
+        return CONTAINERS.computeIfAbsent(storageConnectionString + "|" + containerBlob, k -> {
+            BlobContainerClient container = new BlobServiceClientBuilder()
+                    .connectionString(storageConnectionString).buildClient()
+                    .getBlobContainerClient(containerBlob);
+            container.createIfNotExists();
+            return container;
+        });
+    }
+
+    private static SpillBuffer gzip(FlowContent xml) throws IOException {
+        SpillBuffer gzipXml = new SpillBuffer(SPILL_THRESHOLD_BYTES, "flow-blob");
+        try (InputStream in = xml.openStream(); OutputStream out = new GZIPOutputStream(gzipXml)) {
+            in.transferTo(out);
+        }
+        return gzipXml;
+    }
+}
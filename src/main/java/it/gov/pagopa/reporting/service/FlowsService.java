@@ -1,45 +1,89 @@
 package it.gov.pagopa.reporting.service;
 
+import com.azure.core.util.Context;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.azure.storage.blob.models.BlobDownloadResponse;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.microsoft.azure.storage.CloudStorageAccount;
 import com.microsoft.azure.storage.StorageException;
 import com.microsoft.azure.storage.table.CloudTable;
 import com.microsoft.azure.storage.table.TableQuery;
 import it.gov.pagopa.reporting.entity.FlowEntity;
-import it.gov.pagopa.reporting.model.Fdr3Data;
-import it.gov.pagopa.reporting.model.Fdr3Response;
+import it.gov.pagopa.reporting.exception.PayloadTooLargeException;
+import it.gov.pagopa.reporting.model.CacheStats;
+import it.gov.pagopa.reporting.model.CoalescingStats;
+import it.gov.pagopa.reporting.model.Fdr3Metadata;
 import it.gov.pagopa.reporting.model.Flow;
+import it.gov.pagopa.reporting.model.FlowSummary;
+import it.gov.pagopa.reporting.model.PrefetchStats;
 import it.gov.pagopa.reporting.util.AzuriteStorageUtil;
+import it.gov.pagopa.reporting.util.CompactFlowList;
+import it.gov.pagopa.reporting.util.DependencyGuard;
+import it.gov.pagopa.reporting.util.DiskContentCache;
+import it.gov.pagopa.reporting.util.EnvUtil;
+import it.gov.pagopa.reporting.util.FlowContent;
+import it.gov.pagopa.reporting.util.FlowPaymentIndex;
+import it.gov.pagopa.reporting.util.FlowSummaryParser;
+import it.gov.pagopa.reporting.util.Fdr3ListParser;
 import it.gov.pagopa.reporting.util.FlowConverter;
+import it.gov.pagopa.reporting.util.HttpClientProvider;
+import it.gov.pagopa.reporting.util.IsoDateTime;
+import it.gov.pagopa.reporting.util.NamedThreadFactory;
+import it.gov.pagopa.reporting.util.Prefetcher;
+import it.gov.pagopa.reporting.util.SingleFlight;
+import it.gov.pagopa.reporting.util.SpillBuffer;
+import it.gov.pagopa.reporting.util.TtlCache;
 import org.modelmapper.Converter;
 import org.modelmapper.ModelMapper;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.InputStreamReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.InvalidKeyException;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 public class FlowsService {
 
@@ -48,8 +92,62 @@ public class FlowsService {
     private String containerBlob;
     private Logger logger;
 
-    private final HttpClient httpClient = HttpClient.newHttpClient();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final DependencyGuard FDR1_GUARD = DependencyGuard.of("FDR1");
+    private static final DependencyGuard FDR3_GUARD = DependencyGuard.of("FDR3");
+
+    private static final int FDR3_LIST_MAX_PARALLEL_PAGES = Math.max(1, EnvUtil.getInt("FDR3_LIST_MAX_PARALLEL_PAGES", 4));
+
+    private static final ExecutorService FDR3_PAGE_EXECUTOR = Executors.newFixedThreadPool(
+            EnvUtil.getInt("FDR3_LIST_PAGE_THREADS", 16), new NamedThreadFactory("fdr3-page"));
+
+    private static final int FDR3_LIST_MAX_RANGE_DAYS = EnvUtil.getInt("FDR3_LIST_MAX_RANGE_DAYS", 31);
+
+    // a pool of its own, since the days wait for their pages on FDR3_PAGE_EXECUTOR
+    private static final ExecutorService FDR3_DAY_EXECUTOR = Executors.newFixedThreadPool(
+            EnvUtil.getInt("FDR3_LIST_DAY_THREADS", 8), new NamedThreadFactory("fdr3-day"));
+
+    private static final int FLOW_ARCHIVE_MAX_PARALLEL_FLOWS = Math.max(1, EnvUtil.getInt("FLOW_ARCHIVE_MAX_PARALLEL_FLOWS", 4));
+    // shared by all the archives of the instance, each one using at most FLOW_ARCHIVE_MAX_PARALLEL_FLOWS threads
+    private static final ExecutorService FLOW_ARCHIVE_EXECUTOR = Executors.newFixedThreadPool(
+            EnvUtil.getInt("FLOW_ARCHIVE_THREADS", 8), new NamedThreadFactory("flow-archive"));
+
+    private static final int FDR1_FLOW_SPILL_THRESHOLD_BYTES = EnvUtil.getInt("FDR1_FLOW_SPILL_THRESHOLD_BYTES", 8 * 1024 * 1024);
+
+    // kept on the local disk of the instance across restarts of the function host; the key has no revision,
+    // so a flow published again is served stale for at most FDR1_FLOW_DISK_CACHE_TTL_SECONDS
+    private static final DiskContentCache FDR1_FLOW_DISK_CACHE = new DiskContentCache("fdr1-flow-disk",
+            Path.of(Optional.ofNullable(System.getenv("FDR1_FLOW_DISK_CACHE_DIR"))
+                    .orElse(System.getProperty("java.io.tmpdir") + "/fdr1-flow-cache")),
+            EnvUtil.getLong("FDR1_FLOW_DISK_CACHE_MAX_BYTES", 512L * 1024 * 1024),
+            EnvUtil.getLong("FDR1_FLOW_DISK_CACHE_TTL_SECONDS", 3600) * 1000);
+
+    private static final TtlCache<String, CompactFlowList> FDR3_LIST_CACHE = new TtlCache<>("fdr3-list",
+            EnvUtil.getInt("FDR3_LIST_CACHE_MAX_SIZE", 1000));
+    private static final long FDR3_LIST_CACHE_TTL_MILLIS = EnvUtil.getLong("FDR3_LIST_CACHE_TTL_SECONDS", 60) * 1000;
+    private static final long FDR3_LIST_CACHE_IMMUTABLE_TTL_MILLIS = EnvUtil.getLong("FDR3_LIST_CACHE_IMMUTABLE_TTL_SECONDS", 86400) * 1000;
+
+    private static final SingleFlight<String, CompactFlowList> FDR3_LIST_FLIGHTS = new SingleFlight<>("fdr3-list");
+    private static final SingleFlight<String, FlowContent> FDR1_FLOW_FLIGHTS = new SingleFlight<>("fdr1-flow");
+
+    // the newest flows of a list, 0 to disable the prefetch
+    private static final int FLOW_PREFETCH_COUNT = EnvUtil.getInt("FLOW_PREFETCH_COUNT", 0);
+    // prefetches beyond the queue are dropped, never delaying the list response
+    private static final Prefetcher<String> FDR1_FLOW_PREFETCHER = new Prefetcher<>("fdr1-flow",
+            new ThreadPoolExecutor(EnvUtil.getInt("FLOW_PREFETCH_THREADS", 2), EnvUtil.getInt("FLOW_PREFETCH_THREADS", 2),
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(EnvUtil.getInt("FLOW_PREFETCH_QUEUE_SIZE", 50)),
+                    new NamedThreadFactory("flow-prefetch")),
+            EnvUtil.getInt("FLOW_PREFETCH_TRACKED", 10000));
+
+    // bounded by the heap held by the indexes too, since each one may keep up to FDR1_FLOW_SPILL_THRESHOLD_BYTES in memory
+    private static final TtlCache<String, FlowPaymentIndex> FLOW_PAYMENTS_CACHE = new TtlCache<>("flow-payments",
+            EnvUtil.getInt("FLOW_PAYMENTS_CACHE_MAX_SIZE", 50),
+            EnvUtil.getLong("FLOW_PAYMENTS_CACHE_MAX_BYTES", 64L * 1024 * 1024), FlowPaymentIndex::heapBytes);
+    private static final long FLOW_PAYMENTS_CACHE_TTL_MILLIS = EnvUtil.getLong("FLOW_PAYMENTS_CACHE_TTL_SECONDS", 3600) * 1000;
+    private static final SingleFlight<String, FlowPaymentIndex> FLOW_PAYMENTS_FLIGHTS = new SingleFlight<>("flow-payments");
+
+    private final HttpClient httpClient = HttpClientProvider.getClient();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     private final String Fdr3ApiKey = System.getenv("FDR3_APIM_SUBSCRIPTION_KEY");
     private final String Fdr1ApiKey = System.getenv("FDR1_APIM_SUBSCRIPTION_KEY");
@@ -64,6 +162,10 @@ public class FlowsService {
 
     private final String listEl4Page = System.getenv("FDR3_LIST_ELEMENTS_FOR_PAGE");
 
+    private final boolean earlyStop = EnvUtil.getBoolean("FDR3_LIST_EARLY_STOP", false);
+
+    private final boolean fdr1FlowBlobCacheEnabled = EnvUtil.getBoolean("FDR1_FLOW_BLOB_CACHE_ENABLED", true);
+
     public FlowsService(String storageConnectionString, String flowsTable, String containerBlob, Logger logger) {
 
         this.storageConnectionString = storageConnectionString;
@@ -113,6 +215,10 @@ public class FlowsService {
     public String getByFlow(String organizationId, String flowId, String flowDate) throws Exception {
         logger.log(Level.INFO, () -> String.format("[FlowsService] START get by flow: %s - %s - %s", organizationId, flowId, flowDate));
 
+        if (!FlowBlobStore.isValidId(organizationId) || !FlowBlobStore.isValidId(flowId)) {
+            throw new IllegalArgumentException("[FlowsService] invalid blob name for flow: " + flowId);
+        }
+
         // try to create blob container
         AzuriteStorageUtil azuriteStorageUtil = new AzuriteStorageUtil(storageConnectionString, null, containerBlob);
         azuriteStorageUtil.createTable();
@@ -122,15 +228,16 @@ public class FlowsService {
 
         BlobContainerClient flowsContainerClient = blobServiceClient.getBlobContainerClient(this.containerBlob);
 
-        // dataOra##idPa##idflow.xml
-        BlobClient blobClient = flowsContainerClient.getBlobClient(
-                flowDate + "##" + organizationId + "##" + flowId + ".xml"
-        );
+        BlobClient blobClient = flowsContainerClient.getBlobClient(FlowBlobStore.blobName(organizationId, flowId, flowDate));
 
         //creating an object of output stream to receive the file's content from azure blob.
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        blobClient.download(outputStream);
+        BlobDownloadResponse response = blobClient.downloadStreamWithResponse(outputStream, null, null, null, false, null, Context.NONE);
 
+        // the flows written back by fetchFdr1FlowGzip are compressed
+        if ("gzip".equalsIgnoreCase(response.getDeserializedHeaders().getContentEncoding())) {
+            return new String(gunzip(SpillBuffer.of(outputStream.toByteArray())), StandardCharsets.UTF_8);
+        }
         return outputStream.toString();
     }
 
@@ -140,93 +247,544 @@ public class FlowsService {
      * If a flowDate is provided, results are filtered to include only entries whose date-time 
      * is inside the day specified in flowDate. To achieve this, the method constructs an upper bound
      * and lower bound for the date-time based on flowDate, the FDR3 API accepts only a lower bound,
-     * for that reason the method filters the results by the upper bound after the API call.
+     * for that reason the method filters the results by the upper bound while the response is parsed.
+     * All the result pages are retrieved, the ones after the first concurrently.
+     * <p>
+     * Results are cached per organization and flowDate: the flows of today and the depth query (no flowDate)
+     * are kept for <code>FDR3_LIST_CACHE_TTL_SECONDS</code>, the flows of past days, whose set no longer changes,
+     * for <code>FDR3_LIST_CACHE_IMMUTABLE_TTL_SECONDS</code>. Concurrent misses for the same key share one upstream call.
      *
      * @param organizationId the unique identifier of the organization to retrieve flows for
      * @param flowDate       optional ISO-8601 date (yyyy-MM-dd) used to filter flows; if null,
      *                       retrieves flows up to a depth defined by configuration
-     * @return a {@link Fdr3Response} with the list of matching flows
+     * @return the matching flows, newest first
      * @throws Exception if an HTTP or parsing error occurs while calling the FDR3 endpoint
      */
-    public Fdr3Response fetchFdr3List(String organizationId, String flowDate) throws Exception {
+    public CompactFlowList fetchFdr3List(String organizationId, String flowDate) throws Exception {
 
         logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr3List] START get flow list from FDR3: %s", organizationId));
 
+        // if a specific flowDate has been specified, check that it is not older than the maximum depth allowed for FDR3,
+        // before the cache lookup, since a cached day can fall out of the depth
+        if (flowDate != null) {
+            checkDepth(flowDate, maxFdrFlowDate());
+        }
+
+        String cacheKey = organizationId + "|" + (flowDate != null ? flowDate : "");
+        CompactFlowList cached = FDR3_LIST_CACHE.get(cacheKey);
+        if (cached != null) {
+            logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr3List] cache hit: %s", FDR3_LIST_CACHE.getStats()));
+            return cached;
+        }
+
+        return FDR3_LIST_FLIGHTS.execute(cacheKey, () -> {
+            // cached by a flight completed after the lookup above
+            CompactFlowList completed = FDR3_LIST_CACHE.peek(cacheKey);
+            if (completed != null) {
+                return completed;
+            }
+            CompactFlowList response = loadFdr3List(organizationId, flowDate);
+            FDR3_LIST_CACHE.put(cacheKey, response, fdr3ListTtlMillis(flowDate));
+            return response;
+        });
+    }
+
+    /**
+     * Retrieves the reporting flows of every day from flowDateFrom to flowDateTo, both included.
+     * <p>
+     * Each day is retrieved by {@link #fetchFdr3List(String, String)}, so it is cached on its own, and the days are
+     * fetched concurrently. The lists of the days, already sorted, are merged newest first.
+     *
+     * @param organizationId the unique identifier of the organization to retrieve flows for
+     * @param flowDateFrom   the first day, ISO-8601 date (yyyy-MM-dd), not older than the configured depth
+     * @param flowDateTo     the last day, ISO-8601 date (yyyy-MM-dd)
+     * @return the matching flows, newest first
+     * @throws IllegalArgumentException if the range is not valid
+     */
+    public CompactFlowList fetchFdr3Range(String organizationId, String flowDateFrom, String flowDateTo) throws Exception {
+        LocalDate from = LocalDate.parse(flowDateFrom);
+        LocalDate to = LocalDate.parse(flowDateTo);
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("flowDateFrom cannot be after flowDateTo.");
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days > FDR3_LIST_MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("The date range cannot be longer than " + FDR3_LIST_MAX_RANGE_DAYS + " days.");
+        }
+        checkDepth(flowDateFrom, maxFdrFlowDate());
+
+        logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr3Range] START get flow list from FDR3: %s [%s, %s]",
+                organizationId, flowDateFrom, flowDateTo));
+
+        List<Future<CompactFlowList>> dayLists = new ArrayList<>();
+        for (LocalDate day = to; !day.isBefore(from); day = day.minusDays(1)) {
+            final String flowDate = day.toString();
+            dayLists.add(FDR3_DAY_EXECUTOR.submit(() -> fetchFdr3List(organizationId, flowDate)));
+        }
+        List<CompactFlowList> sortedLists = new ArrayList<>();
+        for (Future<CompactFlowList> dayList : dayLists) {
+            sortedLists.add(getPage(dayList));
+        }
+        return CompactFlowList.mergeNewestFirst(sortedLists);
+    }
+
+    private String maxFdrFlowDate() {
+        return OffsetDateTime.now(ZoneOffset.UTC)
+                .minusMonths(flowListDepth)
+                .plusDays(1)
+                .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+    }
+
+    private static void checkDepth(String flowDate, String maxFdrFlowDate) {
+        Instant iMaxFdrFlowDate = Instant.parse(maxFdrFlowDate);
+        Instant iFlowDate = Instant.parse(flowDate + "T23:59:59Z");
+        if (iFlowDate.isBefore(iMaxFdrFlowDate)) {
+            throw new IllegalArgumentException("The date cannot be older than 1 month.");
+        }
+    }
+
+    public static CacheStats getFdr3ListCacheStats() {
+        return FDR3_LIST_CACHE.getStats();
+    }
+
+    public static CacheStats getFdr1FlowDiskCacheStats() {
+        return FDR1_FLOW_DISK_CACHE.getStats();
+    }
+
+    public static CacheStats getFlowPaymentsCacheStats() {
+        return FLOW_PAYMENTS_CACHE.getStats();
+    }
+
+    public static PrefetchStats getPrefetchStats() {
+        return FDR1_FLOW_PREFETCHER.getStats();
+    }
+
+    public static List<CoalescingStats> getCoalescingStats() {
+        return List.of(FDR3_LIST_FLIGHTS.getStats(), FDR1_FLOW_FLIGHTS.getStats(), FLOW_PAYMENTS_FLIGHTS.getStats());
+    }
+
+    static void clearFdr3ListCache() {
+        FDR3_LIST_CACHE.clear();
+    }
+
+    static void clearFlowPaymentsCache() {
+        FLOW_PAYMENTS_CACHE.clear();
+    }
+
+    static void clearFdr1FlowDiskCache() {
+        FDR1_FLOW_DISK_CACHE.clear();
+    }
+
+    private static long fdr3ListTtlMillis(String flowDate) {
+        if (flowDate == null || !LocalDate.parse(flowDate).isBefore(LocalDate.now(ZoneOffset.UTC))) {
+            return FDR3_LIST_CACHE_TTL_MILLIS;
+        }
+        return FDR3_LIST_CACHE_IMMUTABLE_TTL_MILLIS;
+    }
+
+    private CompactFlowList loadFdr3List(String organizationId, String flowDate) throws Exception {
+
         // build upper and lower boud in case specific flowDate has been specified
         final OffsetDateTime filterUpperBound = (flowDate != null)
                 ? OffsetDateTime.parse(flowDate + "T23:59:59Z")
                 : null;
 
-        String maxFdrFlowDate = OffsetDateTime.now(ZoneOffset.UTC)
-                    .minusMonths(flowListDepth)
-                    .plusDays(1)
-                    .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        String maxFdrFlowDate = maxFdrFlowDate();
 
         final String fdrFlowDate = (flowDate != null)
                 ? flowDate + "T00:00:00Z"
                 : maxFdrFlowDate;
 
-        // if a specific flowDate has been specified, check that it is not older than the maximum depth allowed for FDR3
-        if (flowDate != null) {
-            Instant iMaxFdrFlowDate = Instant.parse(maxFdrFlowDate);
-            Instant iFlowDate = Instant.parse(flowDate + "T23:59:59Z");
-            if (iFlowDate.isBefore(iMaxFdrFlowDate)) {
-                throw new IllegalArgumentException("The date cannot be older than 1 month.");
+        if (filterUpperBound != null) {
+            logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr3List] filtering elements, lowerbound [%s] upperbound [%s]",
+                flowDate, filterUpperBound.toString()));
+        }
+
+        return fetchFdr3Pages(organizationId, fdrFlowDate, filterUpperBound);
+    }
+
+    /**
+     * Retrieves all the pages of the FDR3 flow list. The first page is fetched alone to know the number of pages,
+     * then the remaining ones are fetched concurrently, at most <code>FDR3_LIST_MAX_PARALLEL_PAGES</code> at a time,
+     * and their elements are appended in page order.
+     * <p>
+     * Each page is filtered by the upper bound while it is parsed. When <code>FDR3_LIST_EARLY_STOP</code> is enabled
+     * and an upper bound is given, no further page is fetched after a page left empty by the filter, since FDR3 returns
+     * the flows ordered by date.
+     */
+    private CompactFlowList fetchFdr3Pages(String organizationId, String fdrFlowDate, OffsetDateTime filterUpperBound) throws Exception {
+        CompactFlowList flows = new CompactFlowList();
+        Fdr3Metadata metadata = fetchFdr3Page(organizationId, 1, fdrFlowDate, filterUpperBound, flows);
+        int totPage = metadata != null ? metadata.getTotPage() : 1;
+
+        boolean stop = earlyStop && isPastUpperBound(flows, filterUpperBound);
+        for (int from = 2; from <= totPage && !stop; from += FDR3_LIST_MAX_PARALLEL_PAGES) {
+            List<CompactFlowList> pages = new ArrayList<>();
+            List<Future<Fdr3Metadata>> window = new ArrayList<>();
+            for (int page = from; page < from + FDR3_LIST_MAX_PARALLEL_PAGES && page <= totPage; page++) {
+                final int pageNumber = page;
+                CompactFlowList pageFlows = new CompactFlowList();
+                pages.add(pageFlows);
+                window.add(FDR3_PAGE_EXECUTOR.submit(() -> fetchFdr3Page(organizationId, pageNumber, fdrFlowDate, filterUpperBound, pageFlows)));
+            }
+            for (int i = 0; i < window.size(); i++) {
+                getPage(window.get(i));
+                if (stop) {
+                    continue;
+                }
+                flows.addAll(pages.get(i));
+                stop = earlyStop && isPastUpperBound(pages.get(i), filterUpperBound);
             }
         }
 
+        logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr3List] retrieved %d elements from %d pages", flows.size(), totPage));
+        return flows.sortedNewestFirst();
+    }
+
+    /**
+     * Fetches a page of the FDR3 flow list, adding its elements not after the upper bound to the given list.
+     *
+     * @return the page metadata
+     */
+    protected Fdr3Metadata fetchFdr3Page(String organizationId, int page, String fdrFlowDate, OffsetDateTime filterUpperBound,
+                                         CompactFlowList flows) throws Exception {
         String url = String.format(
-            "%s/organizations/%s/fdrs?page=1&size=%s&flowDate=%s",
+            "%s/organizations/%s/fdrs?page=%d&size=%s&flowDate=%s",
             fdr3BaseUrl,
             organizationId,
+            page,
             listEl4Page,
             fdrFlowDate
         );
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+        HttpRequest request = HttpClientProvider.newRequest(URI.create(url))
                 .header("Ocp-Apim-Subscription-Key", Fdr3ApiKey)
                 .GET()
                 .build();
 
         logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr3List] calling FDR3, url: %s", url));
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        // the body is read within the guarded call, so that the permit is held and the latency sampled until it is consumed
+        ReadResponse<Fdr3Metadata> response = FDR3_GUARD.call(() -> {
+            HttpResponse<InputStream> received = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            return readResponse(received, body -> Fdr3ListParser.parse(body, filterUpperBound, flows));
+        }, r -> isDependencyFailure(r.statusCode()));
 
         if (response.statusCode() != 200) {
-            throw new RuntimeException("Error while calling FDR3 to retrieve flow list: " + response.body());
+            throw new RuntimeException("Error while calling FDR3 to retrieve flow list: " + response.error());
         }
+        return response.value();
+    }
 
-        Fdr3Response fullResponse = objectMapper.readValue(response.body(), Fdr3Response.class);
+    private static <T> T getPage(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
 
-        if (filterUpperBound != null) {
-            
-            logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr3List] filtering elements, lowerbound [%s] upperbound [%s]", 
-                flowDate, filterUpperBound.toString()));
+    private static boolean isPastUpperBound(CompactFlowList page, OffsetDateTime upperBound) {
+        return upperBound != null && page.size() == 0;
+    }
+
+    /**
+     * Retrieves the XML of a reporting flow from FDR1. Concurrent calls for the same flow share one upstream call.
+     */
+    public String fetchFdr1Flow(String organizationId, String fdr) throws Exception {
+        FlowContent gzipXml = fetchFdr1FlowGzip(organizationId, fdr);
+
+        // decompress GZIP
+        logger.log(Level.INFO, "[FlowsService][fetchFdr1Flow] decompress xml file");
+        return new String(gunzip(gzipXml), StandardCharsets.UTF_8);
+    }
 
-            List<Fdr3Data> filteredData = fullResponse.getData().stream()
-                    .filter(d -> {
-                        if (d.getFlowDate() == null) {
-                            return false; // skip entries without flowDate
-                        }
-                        OffsetDateTime offsetFlowDate = OffsetDateTime.parse(d.getFlowDate());
-                        return offsetFlowDate.isBefore(filterUpperBound.plusSeconds(1));
-                    })
-                    .toList();
+    /**
+     * Writes the XML of the reporting flows as the entries of a ZIP archive, named <code>{flowId}.xml</code>.
+     * <p>
+     * Up to <code>FLOW_ARCHIVE_MAX_PARALLEL_FLOWS</code> flows are retrieved and decompressed concurrently, and each
+     * one is written as soon as it is ready, so the entries follow the completion order and only the flows in flight
+     * are held. A flow that cannot be retrieved or decompressed does not stop the archive: it is listed in a final
+     * <code>failed.txt</code> entry. Flow ids that map to the same entry name get a <code>-{n}</code> suffix.
+     *
+     * @param flows    the ids of the flows, each one with its flowDate when known, to look it up in the blob container
+     * @param maxBytes the largest archive that can be written
+     * @return the ids of the flows that could not be retrieved
+     * @throws PayloadTooLargeException if the archive grows over <code>maxBytes</code>
+     */
+    public List<String> writeFlowsArchive(String organizationId, Map<String, String> flows, OutputStream out, long maxBytes) throws IOException {
+        CompletionService<ArchivedFlow> completion = new ExecutorCompletionService<>(FLOW_ARCHIVE_EXECUTOR);
+        Iterator<Map.Entry<String, String>> pending = flows.entrySet().iterator();
+        // the flows submitted and not written yet
+        Set<Future<ArchivedFlow>> running = new HashSet<>();
+        while (running.size() < FLOW_ARCHIVE_MAX_PARALLEL_FLOWS && pending.hasNext()) {
+            running.add(submitArchivedFlow(completion, organizationId, pending.next()));
+        }
 
-            return Fdr3Response.builder()
-                    .metadata(fullResponse.getMetadata())
-                    .count(filteredData.size())
-                    .data(filteredData)
-                    .build();
+        List<String> failed = new ArrayList<>();
+        Set<String> entryNames = new HashSet<>();
+        try (ZipOutputStream zip = new ZipOutputStream(new BoundedOutputStream(out, maxBytes))) {
+            while (!running.isEmpty()) {
+                Future<ArchivedFlow> done = completion.take();
+                running.remove(done);
+                ArchivedFlow flow = done.get();
+                // the next flow is retrieved while this one is written
+                if (pending.hasNext()) {
+                    running.add(submitArchivedFlow(completion, organizationId, pending.next()));
+                }
+                if (flow.xml() == null) {
+                    logger.log(Level.WARNING, () -> String.format("[FlowsService][writeFlowsArchive] flow %s not archived: %s", flow.flowId(), flow.error()));
+                    failed.add(flow.flowId());
+                    continue;
+                }
+                try (InputStream xml = flow.xml().openStream()) {
+                    zip.putNextEntry(new ZipEntry(entryName(flow.flowId(), entryNames)));
+                    xml.transferTo(zip);
+                    zip.closeEntry();
+                } finally {
+                    flow.xml().release();
+                }
+            }
+            if (!failed.isEmpty()) {
+                zip.putNextEntry(new ZipEntry("failed.txt"));
+                zip.write(String.join("\n", failed).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("[FlowsService][writeFlowsArchive] interrupted");
+        } catch (ExecutionException e) {
+            // the tasks catch their own errors
+            throw new IOException(e.getCause());
+        } finally {
+            // when the archive failed, e.g. over its size, the flows still in flight are stopped and the ones
+            // retrieved but not written are released
+            for (Future<ArchivedFlow> flow : running) {
+                if (!flow.cancel(true)) {
+                    releaseArchivedFlow(flow);
+                }
+            }
         }
+        return failed;
+    }
 
-        return fullResponse;
+    private Future<ArchivedFlow> submitArchivedFlow(CompletionService<ArchivedFlow> completion, String organizationId, Map.Entry<String, String> flow) {
+        return completion.submit(() -> {
+            // decompressed before its entry is started, so that a corrupted flow is only listed as failed
+            SpillBuffer xml = new SpillBuffer(FDR1_FLOW_SPILL_THRESHOLD_BYTES, "flow-archive-entry");
+            try (xml; GZIPInputStream gzipXml = new GZIPInputStream(fetchFdr1FlowGzip(organizationId, flow.getKey(), flow.getValue()).openStream())) {
+                gzipXml.transferTo(xml);
+            } catch (Exception e) {
+                xml.release();
+                return new ArchivedFlow(flow.getKey(), null, e.getMessage());
+            }
+            return new ArchivedFlow(flow.getKey(), xml, null);
+        });
     }
 
-    public String fetchFdr1Flow(String organizationId, String fdr) throws Exception {
+    private static void releaseArchivedFlow(Future<ArchivedFlow> flow) {
+        try {
+            ArchivedFlow archived = flow.get();
+            if (archived.xml() != null) {
+                archived.xml().release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // nothing to release
+        }
+    }
+
+    private static String entryName(String flowId, Set<String> entryNames) {
+        String name = flowId.replaceAll("[^A-Za-z0-9._-]", "_");
+        String entryName = name + ".xml";
+        for (int n = 1; !entryNames.add(entryName); n++) {
+            entryName = name + "-" + n + ".xml";
+        }
+        return entryName;
+    }
+
+    private record ArchivedFlow(String flowId, SpillBuffer xml, String error) {
+    }
+
+    private static final class BoundedOutputStream extends FilterOutputStream {
+
+        private final long maxBytes;
+        private long written;
+
+        BoundedOutputStream(OutputStream out, long maxBytes) {
+            super(out);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            count(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count(len);
+            out.write(b, off, len);
+        }
+
+        private void count(int bytes) {
+            written += bytes;
+            if (written > maxBytes) {
+                throw new PayloadTooLargeException("The archive is larger than " + maxBytes + " bytes.");
+            }
+        }
+    }
+
+    /**
+     * Retrieves the header of a reporting flow, decompressing and parsing only the beginning of the XML.
+     */
+    public FlowSummary fetchFdr1FlowSummary(String organizationId, String fdr) throws Exception {
+        FlowContent gzipXml = fetchFdr1FlowGzip(organizationId, fdr);
+        try (GZIPInputStream xml = new GZIPInputStream(gzipXml.openStream())) {
+            return FlowSummaryParser.parse(xml);
+        }
+    }
+
+    /**
+     * Retrieves the single payments of a reporting flow, indexed to be returned in pages. The flow is parsed once and
+     * the index is cached, since a published flow does not change.
+     */
+    public FlowPaymentIndex fetchFdr1FlowPayments(String organizationId, String fdr) throws Exception {
+        String key = organizationId + "|" + fdr;
+        FlowPaymentIndex cached = FLOW_PAYMENTS_CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return FLOW_PAYMENTS_FLIGHTS.execute(key, () -> {
+            // cached by a flight completed after the lookup above
+            FlowPaymentIndex completed = FLOW_PAYMENTS_CACHE.peek(key);
+            if (completed != null) {
+                return completed;
+            }
+            FlowContent gzipXml = fetchFdr1FlowGzip(organizationId, fdr);
+            FlowPaymentIndex payments;
+            try (GZIPInputStream xml = new GZIPInputStream(gzipXml.openStream())) {
+                payments = FlowPaymentIndex.build(xml, FDR1_FLOW_SPILL_THRESHOLD_BYTES);
+            }
+            logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr1FlowPayments] indexed %d payments of flow %s", payments.size(), fdr));
+            FLOW_PAYMENTS_CACHE.put(key, payments, FLOW_PAYMENTS_CACHE_TTL_MILLIS);
+            return payments;
+        });
+    }
+
+    /**
+     * Retrieves the XML of a reporting flow from FDR1 as it is published, compressed with gzip, so that it can be
+     * forwarded to the clients accepting gzip without decompressing it. Concurrent calls for the same flow share
+     * one upstream call.
+     */
+    public FlowContent fetchFdr1FlowGzip(String organizationId, String fdr) throws Exception {
+        return fetchFdr1FlowGzip(organizationId, fdr, null);
+    }
+
+    /**
+     * Retrieves the XML of a reporting flow compressed with gzip. A published flow does not change, so it is looked up,
+     * in order, in:
+     * <ul>
+     *     <li>the local disk cache of the instance;</li>
+     *     <li>the copies on the <code>FLOWS_CONTAINER</code> blob container, shared by all the instances, when the
+     *     flowDate is known;</li>
+     *     <li>FDR1, writing the flow back to the blob container in the background, named after its own
+     *     dataOraFlusso.</li>
+     * </ul>
+     * Concurrent calls for the same flow share one lookup.
+     * <p>
+     * The FDR1 response is streamed: the xmlRendicontazione field is Base64-decoded while it is read, into a buffer
+     * moved to a temporary file when it grows over <code>FDR1_FLOW_SPILL_THRESHOLD_BYTES</code>.
+     */
+    public FlowContent fetchFdr1FlowGzip(String organizationId, String fdr, String flowDate) throws Exception {
 
         logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr1Flow] START get flow from FDR3, organizationId: %s flowId: %s", organizationId, fdr));
 
+        String key = organizationId + "|" + fdr;
+        FDR1_FLOW_PREFETCHER.markRequested(key);
+        return loadFdr1FlowGzip(organizationId, fdr, flowDate, key);
+    }
+
+    /**
+     * Warms the flow caches with the newest <code>FLOW_PREFETCH_COUNT</code> flows of the list, in the background,
+     * since the clients usually request them right after the list. It returns without waiting.
+     *
+     * @param flows sorted newest first
+     */
+    public void prefetchFdr1Flows(String organizationId, CompactFlowList flows) {
+        for (int i = 0; i < Math.min(FLOW_PREFETCH_COUNT, flows.size()); i++) {
+            String fdr = flows.getFlowId(i);
+            String flowDate = IsoDateTime.formatLocal(flows.getFlowDate(i));
+            String key = organizationId + "|" + fdr;
+            if (!FDR1_FLOW_DISK_CACHE.contains(key)) {
+                FDR1_FLOW_PREFETCHER.submit(key, () -> loadFdr1FlowGzip(organizationId, fdr, flowDate, key));
+            }
+        }
+    }
+
+    private FlowContent loadFdr1FlowGzip(String organizationId, String fdr, String flowDate, String key) throws Exception {
+        FlowContent cached = FDR1_FLOW_DISK_CACHE.get(key);
+        if (cached != null) {
+            logger.log(Level.INFO, "[FlowsService][fetchFdr1Flow] flow served from disk cache");
+            return cached;
+        }
+        return FDR1_FLOW_FLIGHTS.execute(key, () -> {
+            // cached by a flight completed after the lookup above
+            if (FDR1_FLOW_DISK_CACHE.contains(key)) {
+                FlowContent completed = FDR1_FLOW_DISK_CACHE.get(key);
+                if (completed != null) {
+                    return completed;
+                }
+            }
+            // the ids are part of the blob name, unsafe ones skip the blob storage
+            FlowBlobStore blobStore = null;
+            if (FlowBlobStore.isValidId(organizationId) && FlowBlobStore.isValidId(fdr)) {
+                blobStore = getFlowBlobStore();
+            } else {
+                logger.log(Level.WARNING, () -> String.format("[FlowsService][fetchFdr1Flow] invalid ids, blob storage skipped: %s %s", organizationId, fdr));
+            }
+            // the flowDate of the request is only used to look the flow up, a written blob is named after the flow itself
+            FlowContent gzipXml = null;
+            if (blobStore != null && IsoDateTime.isDateTime(flowDate)) {
+                gzipXml = blobStore.read(organizationId, fdr, flowDate);
+            } else if (flowDate != null) {
+                logger.log(Level.WARNING, () -> "[FlowsService][fetchFdr1Flow] invalid flowDate, blob lookup skipped: " + flowDate);
+            }
+            if (gzipXml != null) {
+                logger.log(Level.INFO, "[FlowsService][fetchFdr1Flow] flow served from blob storage");
+            } else {
+                gzipXml = loadFdr1Flow(organizationId, fdr);
+                if (blobStore != null) {
+                    blobStore.writeAsync(organizationId, fdr, gzipXml);
+                }
+            }
+            FDR1_FLOW_DISK_CACHE.put(key, gzipXml);
+            return gzipXml;
+        });
+    }
+
+    /**
+     * @return the shared copies of the flows, or null when the blob container is not configured or disabled
+     */
+    protected FlowBlobStore getFlowBlobStore() {
+        if (!fdr1FlowBlobCacheEnabled || storageConnectionString == null || containerBlob == null || containerBlob.isBlank()) {
+            return null;
+        }
+        return new FlowBlobStore(storageConnectionString, containerBlob, logger);
+    }
+
+    /**
+     * @return the decompressed XML, decompressed in a single pass into a buffer of the final size
+     */
+    public static byte[] gunzip(FlowContent gzipXml) throws IOException {
+        try (GZIPInputStream gis = new GZIPInputStream(gzipXml.openStream())) {
+            return gis.readAllBytes();
+        }
+    }
+
+    protected SpillBuffer loadFdr1Flow(String organizationId, String fdr) throws Exception {
+
         String url = String.format(
             "%s/internal/organizations/%s/fdrs/%s",
             fdr1BaseUrl,
@@ -235,36 +793,73 @@ public class FlowsService {
         );
 
         logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr1Flow] calling FDR1, url: %s", url));
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(url))
+        HttpRequest request = HttpClientProvider.newRequest(URI.create(url))
             .header("Ocp-Apim-Subscription-Key", Fdr1ApiKey + ";product=fdr_internal")
             .GET()
             .build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        ReadResponse<SpillBuffer> response = FDR1_GUARD.call(() -> {
+            HttpResponse<InputStream> received = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            return readResponse(received, body -> {
+                // get compressed base64 xml rendicontazione
+                logger.log(Level.INFO, "[FlowsService][fetchFdr1Flow] get compressed base64 xml");
+                SpillBuffer gzipXml = new SpillBuffer(FDR1_FLOW_SPILL_THRESHOLD_BYTES, "fdr1-flow");
+                try (gzipXml) {
+                    readXmlRendicontazione(body, gzipXml);
+                }
+                return gzipXml;
+            });
+        }, r -> isDependencyFailure(r.statusCode()));
 
         if (response.statusCode() != 200) {
-            throw new RuntimeException("[FlowsService][fetchFdr1Flow] Error while calling FDR1 internal to retrieve flow details: " + response.body());
+            throw new RuntimeException("[FlowsService][fetchFdr1Flow] Error while calling FDR1 internal to retrieve flow details: "
+                    + response.error());
         }
+        SpillBuffer gzipXml = response.value();
+        logger.log(Level.INFO, () -> String.format("[FlowsService][fetchFdr1Flow] compressed xml of %d bytes, spilled to file: %s",
+                gzipXml.size(), gzipXml.isSpilled()));
+        return gzipXml;
+    }
 
-        // get compressed base64 xml rendicontazione
-        logger.log(Level.INFO, "[FlowsService][fetchFdr1Flow] get compressed base64 xml");
-        String compressedXmlBase64 = objectMapper.readTree(response.body()).get("xmlRendicontazione").asText();
-        byte[] gzipBytes = Base64.getDecoder().decode(compressedXmlBase64);
-        
-        // decompress GZIP
-        logger.log(Level.INFO, "[FlowsService][fetchFdr1Flow] decompress xml file");
-        try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(gzipBytes));
-            InputStreamReader reader = new InputStreamReader(gis, StandardCharsets.UTF_8);
-            BufferedReader in = new BufferedReader(reader)) {
-
-            StringBuilder xmlBuilder = new StringBuilder();
-            String line;
-            while ((line = in.readLine()) != null) {
-                xmlBuilder.append(line).append("\n");
+    /**
+     * Reads the streamed body of a response within the read timeout: the value of a 200 response, else the error message.
+     */
+    private static <T> ReadResponse<T> readResponse(HttpResponse<InputStream> response, BodyReader<T> reader) throws Exception {
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                byte[] error = HttpClientProvider.readBody(body, body::readAllBytes);
+                return new ReadResponse<>(response.statusCode(), null, new String(error, StandardCharsets.UTF_8));
             }
+            return new ReadResponse<>(response.statusCode(), HttpClientProvider.readBody(body, () -> reader.read(body)), null);
+        }
+    }
 
-            return xmlBuilder.toString().trim(); // XML already formatted
+    static void readXmlRendicontazione(InputStream body, OutputStream out) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("[FlowsService][fetchFdr1Flow] Unexpected FDR1 response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("xmlRendicontazione".equals(field) && value == JsonToken.VALUE_STRING) {
+                    parser.readBinaryValue(Base64Variants.MIME_NO_LINEFEEDS, out);
+                    return;
+                }
+                parser.skipChildren();
+            }
+            throw new IOException("[FlowsService][fetchFdr1Flow] xmlRendicontazione missing in FDR1 response");
         }
     }
+
+    private static boolean isDependencyFailure(int statusCode) {
+        return statusCode >= 500 || statusCode == 429;
+    }
+
+    private interface BodyReader<T> {
+        T read(InputStream body) throws Exception;
+    }
+
+    private record ReadResponse<T>(int statusCode, T value, String error) {
+    }
 }
@@ -0,0 +1,152 @@
+package it.gov.pagopa.reporting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.gov.pagopa.reporting.exception.DependencyUnavailableException;
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import it.gov.pagopa.reporting.model.TransferReport;
+import it.gov.pagopa.reporting.util.DependencyGuard;
+import it.gov.pagopa.reporting.util.HttpClientProvider;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Client of the GPD APIs used to mark the transfers as reported.
+ * <p>
+ * Besides the single transfer report, the client can send all the transfers of an organization in
+ * one bulk request when <code>GPD_BULK_REPORT_PATH</code> is configured (e.g.
+ * <code>/organizations/{organizationId}/paymentoptions/transfers/report</code>). If GPD answers that
+ * the bulk route does not exist, bulk requests are disabled for the lifetime of the instance and the
+ * callers fall back to single reports.
+ * <p>
+ * All the calls go through the <code>GPD</code> {@link DependencyGuard}: when GPD is degraded they are
+ * rejected immediately and reported as retryable, so that the transfers are deferred to the retry queue.
+ * A 4xx answer other than 429 is permanent (e.g. 404 for an IUV not managed by GPD) and is never retried.
+ */
+public class GpdClient {
+
+    public enum ReportResult {
+        REPORTED,
+        // 5xx, 429, I/O error or call rejected by the guard
+        RETRYABLE,
+        // any other 4xx
+        PERMANENT
+    }
+
+    public enum BulkResult {
+        REPORTED,
+        FAILED,
+        UNAVAILABLE
+    }
+
+    // bulk routes that GPD reported as not existing
+    private static final Set<String> UNAVAILABLE_BULK_ROUTES = ConcurrentHashMap.newKeySet();
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final DependencyGuard GUARD = DependencyGuard.of("GPD");
+
+    private static final HttpClient HTTP_CLIENT = HttpClientProvider.getClient();
+
+    private String gpdBasePath;
+    private String gpdSubKey;
+    private String bulkReportPath;
+    private Logger logger;
+
+    public GpdClient(String gpdBasePath, String gpdSubKey, String bulkReportPath, Logger logger) {
+        this.gpdBasePath = gpdBasePath;
+        this.gpdSubKey = gpdSubKey;
+        this.bulkReportPath = bulkReportPath;
+        this.logger = logger;
+    }
+
+    public ReportResult report(String organizationId, String iuv, String transferId) {
+        try {
+            HttpRequest request = HttpClientProvider.newRequest(URI.create(gpdBasePath + "/organizations/" + organizationId + "/paymentoptions/" + iuv + "/transfers/" + transferId + "/report"))
+                    .header("accept", "application/json")
+                    .header("ocp-apim-subscription-key", gpdSubKey)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            HttpResponse<String> response = GUARD.call(() -> HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofString()),
+                    GpdClient::isDependencyFailure);
+            if (response.statusCode() != 200) {
+                logger.log(Level.SEVERE, () -> "[GpdReportingSync] GPD client failed with status " + response.statusCode() + " body:" + response.body());
+                return isDependencyFailure(response) ? ReportResult.RETRYABLE : ReportResult.PERMANENT;
+            }
+            return ReportResult.REPORTED;
+        } catch (DependencyUnavailableException e) {
+            logger.log(Level.WARNING, () -> "[GpdReportingSync] GPD report deferred: " + e.getMessage());
+            return ReportResult.RETRYABLE;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, () -> "[GpdReportingSync] GPD client Exception: " + e.getLocalizedMessage());
+            return ReportResult.RETRYABLE;
+        }
+    }
+
+    /**
+     * Reports all the given transfers of an organization with a single request.
+     *
+     * @param organizationId the organization owning the transfers
+     * @param events         the events to report, all belonging to the organization
+     * @return {@link BulkResult#UNAVAILABLE} if the bulk route is not configured or not exposed by GPD,
+     * otherwise whether GPD acknowledged the whole request
+     */
+    public BulkResult bulkReport(String organizationId, List<ReportedIUVEventModel> events) {
+        if (!isBulkEnabled()) {
+            return BulkResult.UNAVAILABLE;
+        }
+        try {
+            List<TransferReport> transfers = events.stream()
+                    .map(e -> TransferReport.builder().iuv(e.getIuv()).transferId(String.valueOf(e.getIdTransfer())).build())
+                    .toList();
+            HttpRequest request = HttpClientProvider.newRequest(URI.create(gpdBasePath + bulkReportPath.replace("{organizationId}", organizationId)))
+                    .header("accept", "application/json")
+                    .header("content-type", "application/json")
+                    .header("ocp-apim-subscription-key", gpdSubKey)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(OBJECT_MAPPER.writeValueAsBytes(transfers)))
+                    .build();
+            HttpResponse<String> response = GUARD.call(() -> HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofString()),
+                    GpdClient::isDependencyFailure);
+
+            int status = response.statusCode();
+            if (status == 404 || status == 405 || status == 501) {
+                logger.log(Level.WARNING, () -> "[GpdReportingSync] GPD bulk report route not available (status " + status + "), falling back to single reports");
+                UNAVAILABLE_BULK_ROUTES.add(gpdBasePath + bulkReportPath);
+                return BulkResult.UNAVAILABLE;
+            }
+            if (status != 200) {
+                logger.log(Level.SEVERE, () -> "[GpdReportingSync] GPD bulk report failed with status " + status + " body:" + response.body());
+                return BulkResult.FAILED;
+            }
+            return BulkResult.REPORTED;
+        } catch (DependencyUnavailableException e) {
+            logger.log(Level.WARNING, () -> "[GpdReportingSync] GPD bulk report deferred: " + e.getMessage());
+            return BulkResult.FAILED;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, () -> "[GpdReportingSync] GPD bulk report Exception: " + e.getLocalizedMessage());
+            return BulkResult.FAILED;
+        }
+    }
+
+    /**
+     * @return false while the GPD circuit breaker is open and every call would be rejected
+     */
+    public boolean isAvailable() {
+        return !GUARD.isOpen();
+    }
+
+    public boolean isBulkEnabled() {
+        return bulkReportPath != null && !bulkReportPath.isBlank() && !UNAVAILABLE_BULK_ROUTES.contains(gpdBasePath + bulkReportPath);
+    }
+
+    private static boolean isDependencyFailure(HttpResponse<String> response) {
+        return response.statusCode() >= 500 || response.statusCode() == 429;
+    }
+}
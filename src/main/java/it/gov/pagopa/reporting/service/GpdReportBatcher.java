@@ -0,0 +1,62 @@
+package it.gov.pagopa.reporting.service;
+
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import it.gov.pagopa.reporting.util.EnvUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the events of a batch by organization, so that the transfers of the same FDR flow can be
+ * reported to GPD with a single bulk request.
+ * <p>
+ * A group is flushed as soon as it reaches <code>GPD_BULK_REPORT_MAX_SIZE</code> events; the remaining
+ * groups are flushed by {@link #drain()} at the end of the batch. Groups never outlive the invocation
+ * that filled them, so the batch checkpoint always covers reported events only.
+ */
+public class GpdReportBatcher {
+
+    private static final int MAX_SIZE = Math.max(1, EnvUtil.getInt("GPD_BULK_REPORT_MAX_SIZE", 100));
+
+    private final int maxSize;
+
+    private final Map<String, List<ReportedIUVEventModel>> pending = new LinkedHashMap<>();
+    private final List<List<ReportedIUVEventModel>> ready = new ArrayList<>();
+
+    public GpdReportBatcher() {
+        this(MAX_SIZE);
+    }
+
+    public GpdReportBatcher(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void add(ReportedIUVEventModel event) {
+        String organizationId = event.getDomainId();
+        List<ReportedIUVEventModel> group = pending.computeIfAbsent(organizationId, k -> new ArrayList<>());
+        group.add(event);
+
+        if (group.size() >= maxSize) {
+            flush(organizationId);
+        }
+    }
+
+    /**
+     * @return the groups flushed so far followed by all the pending ones, emptying the batcher
+     */
+    public List<List<ReportedIUVEventModel>> drain() {
+        new ArrayList<>(pending.keySet()).forEach(this::flush);
+        List<List<ReportedIUVEventModel>> groups = new ArrayList<>(ready);
+        ready.clear();
+        return groups;
+    }
+
+    private void flush(String organizationId) {
+        List<ReportedIUVEventModel> group = pending.remove(organizationId);
+        if (group != null && !group.isEmpty()) {
+            ready.add(group);
+        }
+    }
+}
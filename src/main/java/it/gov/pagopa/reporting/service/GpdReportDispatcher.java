@@ -0,0 +1,125 @@
+package it.gov.pagopa.reporting.service;
+
+import it.gov.pagopa.reporting.model.ReportOutcome;
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import it.gov.pagopa.reporting.util.EnvUtil;
+import it.gov.pagopa.reporting.util.KeyedExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the GPD report calls of an Event Hub batch in parallel.
+ * <p>
+ * The calls are sharded on <code>GPD_REPORT_MAX_CONCURRENCY</code> ordered lanes by organization
+ * (and also by IUV when <code>GPD_REPORT_SHARD_BY_IUV</code> is true): the events with the same key
+ * are reported one at a time in their original order, while different keys are reported concurrently.
+ * The lanes are shared by every invocation hosted by the same function instance, so their number
+ * caps the in-flight GPD calls across all the partitions processed by the instance.
+ */
+public class GpdReportDispatcher {
+
+    private static final int MAX_CONCURRENCY = Math.max(1, EnvUtil.getInt("GPD_REPORT_MAX_CONCURRENCY", 10));
+
+    private static final boolean SHARD_BY_IUV = EnvUtil.getBoolean("GPD_REPORT_SHARD_BY_IUV", false);
+
+    private static final KeyedExecutor EXECUTOR = new KeyedExecutor(MAX_CONCURRENCY, "gpd-report");
+
+    private final Logger logger;
+
+    public GpdReportDispatcher(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Reports every event and waits until all the calls have completed.
+     *
+     * @param events   the parsed events of the batch
+     * @param reporter performs the GPD call for one event, returning its result
+     * @return one outcome for each event, in the same order as the input list
+     */
+    public List<ReportOutcome> dispatch(List<ReportedIUVEventModel> events, Function<ReportedIUVEventModel, GpdClient.ReportResult> reporter) {
+        List<List<ReportedIUVEventModel>> groups = events.stream().map(List::of).toList();
+        return dispatchGroups(groups, group -> List.of(reporter.apply(group.get(0))));
+    }
+
+    /**
+     * Reports every group of events, each group as a single task, and waits until all the tasks have completed.
+     *
+     * @param groups   the events of the batch, grouped by the unit of work of the reporter
+     * @param reporter performs the GPD call(s) for a group, returning the result of each event of the group
+     * @return one outcome for each event, following the order of the groups; an event without result is retryable
+     */
+    public List<ReportOutcome> dispatchGroups(List<List<ReportedIUVEventModel>> groups,
+                                              Function<List<ReportedIUVEventModel>, List<GpdClient.ReportResult>> reporter) {
+        List<Future<List<GpdClient.ReportResult>>> futures = new ArrayList<>(groups.size());
+        for (List<ReportedIUVEventModel> group : groups) {
+            futures.add(EXECUTOR.submit(shardKey(group), () -> reporter.apply(group)));
+        }
+
+        List<ReportOutcome> outcomes = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++) {
+            List<ReportedIUVEventModel> group = groups.get(i);
+            List<GpdClient.ReportResult> results = getResults(futures.get(i));
+            for (int j = 0; j < group.size(); j++) {
+                outcomes.add(toOutcome(group.get(j), j < results.size() ? results.get(j) : null));
+            }
+        }
+        return outcomes;
+    }
+
+    public static int getMaxConcurrency() {
+        return MAX_CONCURRENCY;
+    }
+
+    /**
+     * @return for each lane, the number of GPD report tasks waiting to be run
+     */
+    public static int[] getLaneQueueDepths() {
+        return EXECUTOR.getQueueDepths();
+    }
+
+    private static String shardKey(List<ReportedIUVEventModel> group) {
+        ReportedIUVEventModel first = group.get(0);
+        // a group with more events is a bulk request of the organization, that has to stay on the organization lane
+        if (SHARD_BY_IUV && group.size() == 1) {
+            return first.getDomainId() + "|" + first.getIuv();
+        }
+        return first.getDomainId();
+    }
+
+    private List<GpdClient.ReportResult> getResults(Future<List<GpdClient.ReportResult>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (ExecutionException e) {
+            logger.log(Level.SEVERE, () -> "[GpdReportDispatcher] GPD report task failed: " + e.getCause());
+            return List.of();
+        }
+    }
+
+    private static ReportOutcome toOutcome(ReportedIUVEventModel event, GpdClient.ReportResult result) {
+        ReportOutcome.Status status;
+        if (result == GpdClient.ReportResult.REPORTED) {
+            status = ReportOutcome.Status.REPORTED;
+        } else if (result == GpdClient.ReportResult.PERMANENT) {
+            status = ReportOutcome.Status.REJECTED;
+        } else {
+            status = ReportOutcome.Status.FAILED;
+        }
+        return ReportOutcome.builder()
+                .organizationId(event.getDomainId())
+                .iuv(event.getIuv())
+                .transferId(String.valueOf(event.getIdTransfer()))
+                .status(status)
+                .build();
+    }
+
+}
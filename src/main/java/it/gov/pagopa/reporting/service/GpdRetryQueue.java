@@ -0,0 +1,380 @@
+package it.gov.pagopa.reporting.service;
+
+import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.table.CloudTable;
+import com.microsoft.azure.storage.table.TableOperation;
+import com.microsoft.azure.storage.table.TableQuery;
+import it.gov.pagopa.reporting.entity.PendingReportEntity;
+import it.gov.pagopa.reporting.model.PendingReport;
+import it.gov.pagopa.reporting.model.ReportOutcome;
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import it.gov.pagopa.reporting.model.RetryQueueMetrics;
+import it.gov.pagopa.reporting.util.AzuriteStorageUtil;
+import it.gov.pagopa.reporting.util.EnvUtil;
+import it.gov.pagopa.reporting.util.NamedThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Retries the GPD reports that failed, keeping them off the hot path of {@link it.gov.pagopa.reporting.GpdReportingSync}.
+ * <p>
+ * Failed reports are rescheduled with exponential backoff and jitter. They are kept in a bounded
+ * in-memory delay queue, drained by a background task of the function instance; when the queue
+ * exceeds <code>GPD_RETRY_QUEUE_MAX_SIZE</code> they spill to the <code>GPD_RETRY_TABLE</code> table,
+ * drained by the <code>GpdReportRetry</code> timer function. Since the timer runs on a single
+ * instance of the app, spilled reports are kept on Table Storage until they are reported or exhausted.
+ * <p>
+ * The reports kept in memory are written to the table too, before {@link #enqueueAll(List)} returns and so before
+ * the Event Hub batch is checkpointed, and removed once they are settled. Their row becomes due only
+ * <code>GPD_RETRY_LEASE_MS</code> after their in-memory retry, so the timer picks them up only when the instance
+ * holding them has stopped, e.g. on a restart or a scale-in.
+ * A report is abandoned after <code>GPD_RETRY_MAX_ATTEMPTS</code> failed attempts, or as soon as GPD
+ * rejects it with a permanent error.
+ */
+public class GpdRetryQueue {
+
+    private static final int MAX_SIZE = Math.max(0, EnvUtil.getInt("GPD_RETRY_QUEUE_MAX_SIZE", 10000));
+    private static final int MAX_ATTEMPTS = Math.max(1, EnvUtil.getInt("GPD_RETRY_MAX_ATTEMPTS", 10));
+    private static final long BASE_DELAY_MILLIS = EnvUtil.getLong("GPD_RETRY_BASE_DELAY_MS", 1000);
+    private static final long MAX_DELAY_MILLIS = EnvUtil.getLong("GPD_RETRY_MAX_DELAY_MS", 300000);
+    private static final long POLL_MILLIS = Math.max(100, EnvUtil.getLong("GPD_RETRY_POLL_MS", 5000));
+    private static final int DRAIN_BATCH_SIZE = Math.max(1, EnvUtil.getInt("GPD_RETRY_DRAIN_BATCH_SIZE", 500));
+    private static final long LEASE_MILLIS = Math.max(0, EnvUtil.getLong("GPD_RETRY_LEASE_MS", 60000));
+
+    private static GpdRetryQueue instance;
+
+    private final DelayQueue<DelayedReport> queue = new DelayQueue<>();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final GpdClient gpdClient;
+    private final ReportedTransferLedger ledger;
+    private final String storageConnectionString;
+    private final String retryTable;
+    private final int maxSize;
+    private final Logger logger;
+
+    GpdRetryQueue(GpdClient gpdClient, ReportedTransferLedger ledger, String storageConnectionString, String retryTable,
+                  int maxSize, Logger logger) {
+        this.gpdClient = gpdClient;
+        this.ledger = ledger;
+        this.storageConnectionString = storageConnectionString;
+        this.retryTable = retryTable;
+        this.maxSize = maxSize;
+        this.logger = logger;
+    }
+
+    /**
+     * @return the retry queue of the function instance, starting its background drain on first use
+     */
+    public static synchronized GpdRetryQueue getInstance() {
+        if (instance == null) {
+            Logger logger = Logger.getLogger(GpdRetryQueue.class.getName());
+            String storageConnectionString = System.getenv("FLOW_SA_CONNECTION_STRING");
+            instance = new GpdRetryQueue(
+                    new GpdClient(System.getenv("GPD_BASE_PATH"), System.getenv("GPD_SUBKEY"), null, logger),
+                    new ReportedTransferLedger(storageConnectionString, System.getenv("REPORTED_TRANSFERS_TABLE"), logger),
+                    storageConnectionString,
+                    System.getenv("GPD_RETRY_TABLE"),
+                    MAX_SIZE,
+                    logger);
+
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("gpd-retry"));
+            GpdRetryQueue queue = instance;
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    queue.drainDue();
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, () -> "[GpdRetryQueue] background drain failed: " + e.getLocalizedMessage());
+                }
+            }, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return instance;
+    }
+
+    /**
+     * Schedules the first retry of the reports that failed with a retryable error, writing them to the table before
+     * returning when the table is configured.
+     */
+    public void enqueueAll(List<ReportOutcome> outcomes) {
+        for (ReportOutcome outcome : outcomes) {
+            if (outcome.isRetryable()) {
+                enqueued.incrementAndGet();
+                schedule(PendingReport.builder()
+                        .organizationId(outcome.getOrganizationId())
+                        .iuv(outcome.getIuv())
+                        .transferId(outcome.getTransferId())
+                        .attempts(1)
+                        .build());
+            }
+        }
+    }
+
+    /**
+     * Retries the in-memory reports whose backoff is elapsed.
+     *
+     * @return the number of reports retried
+     */
+    public int drainDue() {
+        // while GPD is unavailable the reports stay queued, without consuming attempts
+        if (!gpdClient.isAvailable()) {
+            return 0;
+        }
+        List<PendingReport> due = new ArrayList<>();
+        DelayedReport delayed;
+        while (due.size() < DRAIN_BATCH_SIZE && (delayed = queue.poll()) != null) {
+            due.add(delayed.report);
+        }
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        List<ReportOutcome> outcomes = retry(due);
+        for (int i = 0; i < due.size(); i++) {
+            PendingReport report = due.get(i);
+            if (outcomes.get(i).isRetryable()) {
+                schedule(report.toBuilder().attempts(report.getAttempts() + 1).build());
+            } else {
+                forget(report);
+            }
+        }
+        return due.size();
+    }
+
+    /**
+     * Retries the reports spilled on Table Storage whose backoff is elapsed.
+     *
+     * @return the number of reports retried
+     */
+    public int drainSpilled() {
+        if (!isSpillEnabled() || !gpdClient.isAvailable()) {
+            return 0;
+        }
+        try {
+            CloudTable table = getTable();
+            String whereClause = TableQuery.generateFilterCondition("NextAttemptAt", TableQuery.QueryComparisons.LESS_THAN_OR_EQUAL, System.currentTimeMillis());
+            List<PendingReportEntity> entities = new ArrayList<>();
+            for (PendingReportEntity entity : table.execute(TableQuery.from(PendingReportEntity.class).where(whereClause).take(DRAIN_BATCH_SIZE))) {
+                entities.add(entity);
+                if (entities.size() >= DRAIN_BATCH_SIZE) {
+                    break;
+                }
+            }
+            if (entities.isEmpty()) {
+                return 0;
+            }
+
+            List<PendingReport> due = entities.stream()
+                    .map(e -> PendingReport.builder()
+                            .organizationId(e.getPartitionKey())
+                            .iuv(e.getIuv())
+                            .transferId(e.getTransferId())
+                            .attempts(e.getAttempts())
+                            .build())
+                    .toList();
+            List<ReportOutcome> outcomes = retry(due);
+            for (int i = 0; i < entities.size(); i++) {
+                PendingReportEntity entity = entities.get(i);
+                int attempts = entity.getAttempts() + 1;
+                if (!outcomes.get(i).isRetryable() || attempts >= MAX_ATTEMPTS) {
+                    if (outcomes.get(i).isRetryable()) {
+                        exhausted(due.get(i));
+                    }
+                    table.execute(TableOperation.delete(entity));
+                } else {
+                    entity.setAttempts(attempts);
+                    entity.setNextAttemptAt(System.currentTimeMillis() + backoff(attempts));
+                    table.execute(TableOperation.insertOrReplace(entity));
+                }
+            }
+            return entities.size();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, () -> "[GpdRetryQueue] unable to drain the spilled reports: " + e.getLocalizedMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * @return the metrics of the retry queue of the function instance, or null if it has not been used yet
+     */
+    public static synchronized RetryQueueMetrics getInstanceMetrics() {
+        return instance != null ? instance.getMetrics() : null;
+    }
+
+    public RetryQueueMetrics getMetrics() {
+        return RetryQueueMetrics.builder()
+                .depth(queue.size())
+                .enqueued(enqueued.get())
+                .spilled(spilled.get())
+                .persisted(persisted.get())
+                .retried(retried.get())
+                .succeeded(succeeded.get())
+                .exhausted(exhausted.get())
+                .dropped(dropped.get())
+                .build();
+    }
+
+    /**
+     * Exponential backoff with equal jitter: the delay is drawn between half and the whole
+     * of <code>min(max delay, base delay * 2^(attempts - 1))</code>.
+     */
+    static long backoff(int attempts) {
+        long delay = BASE_DELAY_MILLIS << Math.min(Math.max(attempts - 1, 0), 30);
+        if (delay <= 0 || delay > MAX_DELAY_MILLIS) {
+            delay = MAX_DELAY_MILLIS;
+        }
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    private List<ReportOutcome> retry(List<PendingReport> due) {
+        retried.addAndGet(due.size());
+        List<ReportedIUVEventModel> events = due.stream()
+                .map(r -> ReportedIUVEventModel.builder()
+                        .domainId(r.getOrganizationId())
+                        .iuv(r.getIuv())
+                        .idTransfer(Long.valueOf(r.getTransferId()))
+                        .build())
+                .toList();
+        List<ReportOutcome> outcomes = new GpdReportDispatcher(logger)
+                .dispatch(events, e -> gpdClient.report(e.getDomainId(), e.getIuv(), String.valueOf(e.getIdTransfer())));
+        succeeded.addAndGet(outcomes.stream().filter(ReportOutcome::isReported).count());
+        ledger.markReported(outcomes);
+        return outcomes;
+    }
+
+    private void schedule(PendingReport report) {
+        if (report.getAttempts() >= MAX_ATTEMPTS) {
+            exhausted(report);
+            forget(report);
+            return;
+        }
+        PendingReport next = report.toBuilder().nextAttemptAt(System.currentTimeMillis() + backoff(report.getAttempts())).build();
+        if (queue.size() < maxSize) {
+            persist(next);
+            queue.offer(new DelayedReport(next));
+        } else {
+            spill(next);
+        }
+    }
+
+    /**
+     * Writes the report held in memory to the table, due only after its lease, so that it survives the instance.
+     */
+    private void persist(PendingReport report) {
+        if (!isSpillEnabled()) {
+            return;
+        }
+        try {
+            execute(TableOperation.insertOrReplace(new PendingReportEntity(report.getOrganizationId(), report.getIuv(),
+                    report.getTransferId(), report.getAttempts(), report.getNextAttemptAt() + LEASE_MILLIS)));
+            persisted.incrementAndGet();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, () -> String.format("[GpdRetryQueue] unable to persist report, kept in memory only: organizationId=%s iuv=%s transferId=%s error=%s",
+                    report.getOrganizationId(), report.getIuv(), report.getTransferId(), e.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     * Removes the row of a settled report held in memory.
+     */
+    private void forget(PendingReport report) {
+        if (!isSpillEnabled()) {
+            return;
+        }
+        try {
+            PendingReportEntity entity = new PendingReportEntity(report.getOrganizationId(), report.getIuv(), report.getTransferId(), 0, 0);
+            entity.setEtag("*");
+            execute(TableOperation.delete(entity));
+        } catch (Exception e) {
+            // already deleted, or retried once more by the timer
+            logger.log(Level.FINE, () -> "[GpdRetryQueue] unable to remove settled report: " + e.getLocalizedMessage());
+        }
+    }
+
+    private void spill(PendingReport report) {
+        if (!isSpillEnabled()) {
+            dropped.incrementAndGet();
+            logger.log(Level.SEVERE, () -> String.format("[GpdRetryQueue] retry queue full, report dropped: organizationId=%s iuv=%s transferId=%s",
+                    report.getOrganizationId(), report.getIuv(), report.getTransferId()));
+            return;
+        }
+        try {
+            execute(TableOperation.insertOrReplace(new PendingReportEntity(report.getOrganizationId(), report.getIuv(),
+                    report.getTransferId(), report.getAttempts(), report.getNextAttemptAt())));
+            spilled.incrementAndGet();
+        } catch (Exception e) {
+            dropped.incrementAndGet();
+            logger.log(Level.SEVERE, () -> String.format("[GpdRetryQueue] unable to spill report: organizationId=%s iuv=%s transferId=%s error=%s",
+                    report.getOrganizationId(), report.getIuv(), report.getTransferId(), e.getLocalizedMessage()));
+        }
+    }
+
+    private void exhausted(PendingReport report) {
+        exhausted.incrementAndGet();
+        logger.log(Level.SEVERE, () -> String.format("[GpdRetryQueue] report abandoned after %d attempts: organizationId=%s iuv=%s transferId=%s",
+                MAX_ATTEMPTS, report.getOrganizationId(), report.getIuv(), report.getTransferId()));
+    }
+
+    void execute(TableOperation operation) throws Exception {
+        getTable().execute(operation);
+    }
+
+    private CloudTable getTable() throws Exception {
+        // try to create table
+        AzuriteStorageUtil azuriteStorageUtil = new AzuriteStorageUtil(storageConnectionString, retryTable, null);
+        azuriteStorageUtil.createTable();
+
+        return CloudStorageAccount.parse(storageConnectionString).createCloudTableClient()
+                .getTableReference(retryTable);
+    }
+
+    private boolean isSpillEnabled() {
+        return storageConnectionString != null && retryTable != null && !retryTable.isBlank();
+    }
+
+    private static class DelayedReport implements Delayed {
+
+        private final PendingReport report;
+
+        DelayedReport(PendingReport report) {
+            this.report = report;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(report.getNextAttemptAt() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(report.getNextAttemptAt(), ((DelayedReport) other).report.getNextAttemptAt());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof DelayedReport && ((DelayedReport) other).report == report;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(report);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package it.gov.pagopa.reporting.service;
+
+import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.table.CloudTable;
+import com.microsoft.azure.storage.table.TableBatchOperation;
+import com.microsoft.azure.storage.table.TableQuery;
+import it.gov.pagopa.reporting.entity.ReportedTransferEntity;
+import it.gov.pagopa.reporting.model.ReportOutcome;
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import it.gov.pagopa.reporting.util.AzuriteStorageUtil;
+import it.gov.pagopa.reporting.util.EnvUtil;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps track of the transfers already acknowledged by GPD, so that events redelivered by the
+ * Event Hub (after a failed invocation, a host restart or a <code>fromStart</code> replay) are not
+ * reported again.
+ * <p>
+ * Two tiers are checked in order:
+ * <ul>
+ *     <li>a bounded in-memory window, shared by the invocations of the function instance, holding the
+ *     most recently reported transfers;</li>
+ *     <li>a durable ledger on Table Storage (PartitionKey = organization, RowKey = IUV_transferId),
+ *     enabled only when <code>REPORTED_TRANSFERS_TABLE</code> is configured.</li>
+ * </ul>
+ * Any error on the durable ledger is logged and the transfer is treated as not reported: a redundant
+ * GPD call is preferred to a lost report.
+ */
+public class ReportedTransferLedger {
+
+    // Table Storage rejects filters with more than 15 comparisons
+    private static final int MAX_ROW_KEYS_PER_QUERY = 14;
+    private static final int MAX_BATCH_OPERATIONS = 100;
+
+    private static final int WINDOW_SIZE = Math.max(1, EnvUtil.getInt("GPD_IDEMPOTENCY_WINDOW_SIZE", 10000));
+
+    private static final Set<String> RECENTLY_REPORTED = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > WINDOW_SIZE;
+                }
+            }));
+
+    private String storageConnectionString;
+    private String reportedTransfersTable;
+    private Logger logger;
+
+    public ReportedTransferLedger(String storageConnectionString, String reportedTransfersTable, Logger logger) {
+        this.storageConnectionString = storageConnectionString;
+        this.reportedTransfersTable = reportedTransfersTable;
+        this.logger = logger;
+    }
+
+    /**
+     * Splits the batch in the events that still have to be reported and the ones already reported,
+     * dropping also the duplicates inside the batch itself.
+     *
+     * @param events the parsed events of the batch
+     * @return the events to report, in their original order
+     */
+    public List<ReportedIUVEventModel> filterNotReported(List<ReportedIUVEventModel> events) {
+        Map<String, ReportedIUVEventModel> candidates = new LinkedHashMap<>();
+        for (ReportedIUVEventModel event : events) {
+            String key = key(event.getDomainId(), event.getIuv(), String.valueOf(event.getIdTransfer()));
+            if (!RECENTLY_REPORTED.contains(key)) {
+                candidates.putIfAbsent(key, event);
+            }
+        }
+
+        if (isDurable() && !candidates.isEmpty()) {
+            Set<String> alreadyReported = findReported(candidates.values());
+            candidates.keySet().removeAll(alreadyReported);
+            RECENTLY_REPORTED.addAll(alreadyReported);
+        }
+
+        return new ArrayList<>(candidates.values());
+    }
+
+    /**
+     * Records the transfers acknowledged by GPD in both the tiers.
+     *
+     * @param outcomes the outcomes of the GPD calls; only the reported ones are recorded
+     */
+    public void markReported(List<ReportOutcome> outcomes) {
+        List<ReportOutcome> reported = outcomes.stream().filter(ReportOutcome::isReported).toList();
+        reported.forEach(o -> RECENTLY_REPORTED.add(key(o.getOrganizationId(), o.getIuv(), o.getTransferId())));
+
+        if (!isDurable() || reported.isEmpty()) {
+            return;
+        }
+
+        String reportedAt = Instant.now().toString();
+        Map<String, List<ReportOutcome>> byOrganization = reported.stream()
+                .collect(Collectors.groupingBy(ReportOutcome::getOrganizationId, LinkedHashMap::new, Collectors.toList()));
+        try {
+            CloudTable table = getTable();
+            for (List<ReportOutcome> partition : byOrganization.values()) {
+                // a batch operation must target a single partition and contain at most 100 operations
+                for (int from = 0; from < partition.size(); from += MAX_BATCH_OPERATIONS) {
+                    TableBatchOperation batch = new TableBatchOperation();
+                    for (ReportOutcome o : partition.subList(from, Math.min(from + MAX_BATCH_OPERATIONS, partition.size()))) {
+                        batch.insertOrReplace(new ReportedTransferEntity(o.getOrganizationId(), o.getIuv(), o.getTransferId(), reportedAt));
+                    }
+                    table.execute(batch);
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, () -> "[ReportedTransferLedger] unable to record reported transfers: " + e.getLocalizedMessage());
+        }
+    }
+
+    public static int getWindowSize() {
+        return RECENTLY_REPORTED.size();
+    }
+
+    private Set<String> findReported(Iterable<ReportedIUVEventModel> events) {
+        // organization -> (row key -> window key)
+        Map<String, Map<String, String>> rowKeysByOrganization = new LinkedHashMap<>();
+        for (ReportedIUVEventModel event : events) {
+            String transferId = String.valueOf(event.getIdTransfer());
+            rowKeysByOrganization.computeIfAbsent(event.getDomainId(), k -> new LinkedHashMap<>())
+                    .put(ReportedTransferEntity.rowKey(event.getIuv(), transferId), key(event.getDomainId(), event.getIuv(), transferId));
+        }
+
+        Set<String> reported = new HashSet<>();
+        try {
+            CloudTable table = getTable();
+            for (Map.Entry<String, Map<String, String>> entry : rowKeysByOrganization.entrySet()) {
+                String organizationId = entry.getKey();
+                Map<String, String> keys = entry.getValue();
+                List<String> rowKeys = new ArrayList<>(keys.keySet());
+                for (int from = 0; from < rowKeys.size(); from += MAX_ROW_KEYS_PER_QUERY) {
+                    String rowKeyClause = rowKeys.subList(from, Math.min(from + MAX_ROW_KEYS_PER_QUERY, rowKeys.size())).stream()
+                            .map(rowKey -> TableQuery.generateFilterCondition("RowKey", TableQuery.QueryComparisons.EQUAL, rowKey))
+                            .reduce((a, b) -> TableQuery.combineFilters(a, TableQuery.Operators.OR, b))
+                            .orElseThrow();
+                    String whereClause = TableQuery.combineFilters(
+                            TableQuery.generateFilterCondition("PartitionKey", TableQuery.QueryComparisons.EQUAL, organizationId),
+                            TableQuery.Operators.AND,
+                            rowKeyClause);
+
+                    for (ReportedTransferEntity entity : table.execute(TableQuery.from(ReportedTransferEntity.class).where(whereClause))) {
+                        reported.add(keys.get(entity.getRowKey()));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, () -> "[ReportedTransferLedger] unable to read the reported transfers ledger: " + e.getLocalizedMessage());
+        }
+        return reported;
+    }
+
+    private CloudTable getTable() throws Exception {
+        // try to create table
+        AzuriteStorageUtil azuriteStorageUtil = new AzuriteStorageUtil(storageConnectionString, reportedTransfersTable, null);
+        azuriteStorageUtil.createTable();
+
+        return CloudStorageAccount.parse(storageConnectionString).createCloudTableClient()
+                .getTableReference(reportedTransfersTable);
+    }
+
+    private boolean isDurable() {
+        return storageConnectionString != null && reportedTransfersTable != null && !reportedTransfersTable.isBlank();
+    }
+
+    private static String key(String organizationId, String iuv, String transferId) {
+        return organizationId + "|" + iuv + "|" + transferId;
+    }
+}
@@ -0,0 +1,68 @@
+package it.gov.pagopa.reporting.util;
+
+/**
+ * Concurrency limiter following the AIMD (additive increase, multiplicative decrease) strategy.
+ * <p>
+ * The limit grows by one after every fast and successful call made while the limiter was at least
+ * half used, and it is multiplied by the backoff ratio after every failed call or call slower than
+ * the latency threshold, so it converges to the concurrency the dependency is able to sustain.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000L;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * @return true if a call can start; in that case {@link #onSample} or {@link #release} must follow
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases a permit obtained with {@link #tryAcquire} and adjusts the limit.
+     *
+     * @param latencyNanos duration of the call
+     * @param failed       whether the call failed because of the dependency
+     */
+    public synchronized void onSample(long latencyNanos, boolean failed) {
+        inFlight--;
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    /**
+     * Releases a permit obtained with {@link #tryAcquire} for a call that was not made.
+     */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
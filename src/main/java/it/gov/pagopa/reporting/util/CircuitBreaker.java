@@ -0,0 +1,127 @@
+package it.gov.pagopa.reporting.util;
+
+/**
+ * Count-based circuit breaker.
+ * <p>
+ * While CLOSED it records the outcome of the last <code>windowSize</code> calls and opens when, after at
+ * least <code>minCalls</code> calls, the failure rate reaches the threshold. While OPEN every call is
+ * rejected; after <code>openDurationMillis</code> it lets <code>halfOpenCalls</code> trial calls through
+ * (HALF_OPEN) and closes again only if all of them succeed.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int minCalls;
+    private final int failureRateThreshold;
+    private final long openDurationMillis;
+    private final int halfOpenCalls;
+
+    private final boolean[] window;
+    private int windowCount;
+    private int windowIndex;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(int windowSize, int minCalls, int failureRateThreshold, long openDurationMillis, int halfOpenCalls) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.max(1, minCalls);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /**
+     * @return true if a call can be made; in that case {@link #onSuccess}, {@link #onFailure} or {@link #release} must follow
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenInFlight = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight--;
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Releases a call admitted by {@link #tryAcquire} that was not made.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight--;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowCount = 0;
+        windowIndex = 0;
+        windowFailures = 0;
+    }
+}
@@ -0,0 +1,302 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.Flow;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * List of reporting flows kept as parallel arrays of flow ids and flow dates, the latter as wall-clock
+ * epoch seconds (see {@link IsoDateTime#toLocalEpochSecond(String)}).
+ * <p>
+ * It is filled while the FDR3 response is parsed, sorted with a primitive sort and written straight
+ * to the JSON body of GetFlowList, so that neither the timestamps nor the elements are boxed.
+ * The sorted lists are shared through the flow list cache and must not be modified.
+ */
+public final class CompactFlowList {
+
+    private static final int INDEX_BITS = 20;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private String[] flowIds;
+    private long[] flowDates;
+    private int size;
+    private volatile String etag;
+
+    public CompactFlowList() {
+        this(16);
+    }
+
+    public CompactFlowList(int capacity) {
+        this.flowIds = new String[Math.max(1, capacity)];
+        this.flowDates = new long[Math.max(1, capacity)];
+    }
+
+    public void add(String flowId, long localEpochSecond) {
+        ensureCapacity(size + 1);
+        flowIds[size] = flowId;
+        flowDates[size] = localEpochSecond;
+        size++;
+    }
+
+    public void addAll(CompactFlowList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.flowIds, 0, flowIds, size, other.size);
+        System.arraycopy(other.flowDates, 0, flowDates, size, other.size);
+        size += other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getFlowId(int index) {
+        return flowIds[index];
+    }
+
+    public long getFlowDate(int index) {
+        return flowDates[index];
+    }
+
+    /**
+     * @return a copy sorted by flow date, newest first; flows with the same date keep their order
+     */
+    public CompactFlowList sortedNewestFirst() {
+        CompactFlowList sorted = new CompactFlowList(size);
+        if (size == 0) {
+            return sorted;
+        }
+        long minDate = Long.MAX_VALUE;
+        long maxDate = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minDate = Math.min(minDate, flowDates[i]);
+            maxDate = Math.max(maxDate, flowDates[i]);
+        }
+
+        if (size <= INDEX_MASK && maxDate - minDate < (Long.MAX_VALUE >> INDEX_BITS)) {
+            // the date relative to the oldest one and the complement of the index are packed in a single long,
+            // so an ascending sort of the keys walked backwards gives the newest first and, on ties, the lowest index
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((flowDates[i] - minDate) << INDEX_BITS) | (INDEX_MASK - i);
+            }
+            Arrays.sort(keys);
+            for (int k = size - 1; k >= 0; k--) {
+                int i = (int) (INDEX_MASK - (keys[k] & INDEX_MASK));
+                sorted.add(flowIds[i], flowDates[i]);
+            }
+        } else {
+            Integer[] indexes = new Integer[size];
+            Arrays.setAll(indexes, i -> i);
+            Arrays.sort(indexes, (a, b) -> Long.compare(flowDates[b], flowDates[a]));
+            for (int i : indexes) {
+                sorted.add(flowIds[i], flowDates[i]);
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Merges lists already sorted newest first with a k-way merge over a binary heap of the list heads.
+     * Flows with the same date keep the order of the lists they come from.
+     *
+     * @return a new list sorted newest first
+     */
+    public static CompactFlowList mergeNewestFirst(List<CompactFlowList> sortedLists) {
+        int total = 0;
+        for (CompactFlowList list : sortedLists) {
+            total += list.size;
+        }
+        CompactFlowList merged = new CompactFlowList(total);
+
+        int[] heap = new int[sortedLists.size()];
+        int[] positions = new int[sortedLists.size()];
+        int heapSize = 0;
+        for (int l = 0; l < sortedLists.size(); l++) {
+            if (sortedLists.get(l).size > 0) {
+                heap[heapSize++] = l;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, sortedLists, positions);
+        }
+        while (heapSize > 0) {
+            int l = heap[0];
+            CompactFlowList list = sortedLists.get(l);
+            int position = positions[l]++;
+            merged.add(list.flowIds[position], list.flowDates[position]);
+            if (positions[l] == list.size) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(heap, heapSize, 0, sortedLists, positions);
+        }
+        return merged;
+    }
+
+    private static void siftDown(int[] heap, int heapSize, int i, List<CompactFlowList> lists, int[] positions) {
+        while (true) {
+            int first = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < heapSize && precedes(heap[left], heap[first], lists, positions)) {
+                first = left;
+            }
+            if (right < heapSize && precedes(heap[right], heap[first], lists, positions)) {
+                first = right;
+            }
+            if (first == i) {
+                return;
+            }
+            int swap = heap[i];
+            heap[i] = heap[first];
+            heap[first] = swap;
+            i = first;
+        }
+    }
+
+    private static boolean precedes(int a, int b, List<CompactFlowList> lists, int[] positions) {
+        long dateA = lists.get(a).flowDates[positions[a]];
+        long dateB = lists.get(b).flowDates[positions[b]];
+        return dateA > dateB || (dateA == dateB && a < b);
+    }
+
+    /**
+     * @return the flows as a JSON array of <code>{"flowId":..., "flowDate":"yyyy-MM-ddTHH:mm:ss"}</code> objects
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(size * 64 + 2).append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendFlow(json, i);
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * @return the flows as newline delimited JSON, one object per line
+     */
+    public String toNdjson() {
+        StringBuilder ndjson = new StringBuilder(size * 64);
+        for (int i = 0; i < size; i++) {
+            appendFlow(ndjson, i).append('\n');
+        }
+        return ndjson.toString();
+    }
+
+    /**
+     * @return the flows from index from, included, to index to, excluded
+     */
+    public CompactFlowList slice(int from, int to) {
+        if (from == 0 && to == size) {
+            return this;
+        }
+        CompactFlowList slice = new CompactFlowList(to - from);
+        System.arraycopy(flowIds, from, slice.flowIds, 0, to - from);
+        System.arraycopy(flowDates, from, slice.flowDates, 0, to - from);
+        slice.size = to - from;
+        return slice;
+    }
+
+    /**
+     * Finds where a list sorted newest first continues after the given flow. If the flow is no longer in the list,
+     * it continues from the first flow with the same date, so that no flow is skipped.
+     *
+     * @return the index of the first flow after the given one
+     */
+    public int indexAfter(long flowDate, String flowId) {
+        // first index whose date is not newer than flowDate
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (flowDates[mid] > flowDate) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < size && flowDates[i] == flowDate; i++) {
+            if (flowId.equals(flowIds[i])) {
+                return i + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the strong entity tag of the list, computed from its ids and dates on first use
+     */
+    public String getETag() {
+        String result = etag;
+        if (result == null) {
+            MessageDigest digest = ETags.newDigest();
+            ByteBuffer date = ByteBuffer.allocate(Long.BYTES);
+            for (int i = 0; i < size; i++) {
+                if (flowIds[i] != null) {
+                    digest.update(flowIds[i].getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) 0);
+                digest.update(date.putLong(0, flowDates[i]).array());
+            }
+            result = ETags.of(digest);
+            etag = result;
+        }
+        return result;
+    }
+
+    public List<Flow> toFlows() {
+        List<Flow> flows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            flows.add(new Flow(flowIds[i], IsoDateTime.formatLocal(flowDates[i])));
+        }
+        return flows;
+    }
+
+    private StringBuilder appendFlow(StringBuilder json, int i) {
+        json.append("{\"flowId\":");
+        appendString(json, flowIds[i]);
+        json.append(",\"flowDate\":\"");
+        IsoDateTime.appendLocal(json, flowDates[i]);
+        return json.append("\"}");
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > flowIds.length) {
+            int newCapacity = Math.max(capacity, flowIds.length * 2);
+            flowIds = Arrays.copyOf(flowIds, newCapacity);
+            flowDates = Arrays.copyOf(flowDates, newCapacity);
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
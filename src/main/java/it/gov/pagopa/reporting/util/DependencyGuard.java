@@ -0,0 +1,115 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.exception.DependencyUnavailableException;
+import it.gov.pagopa.reporting.model.DependencyStatus;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Protects the calls to an external dependency (GPD, FDR1, FDR3) with an {@link AdaptiveConcurrencyLimiter}
+ * and a {@link CircuitBreaker}, so that a degraded dependency is called less and then not at all,
+ * instead of piling up timeouts.
+ * <p>
+ * One guard exists for each dependency name and is shared by the whole function instance. It is
+ * configured by the <code>{name}_GUARD_*</code> settings, e.g. <code>GPD_GUARD_MAX_LIMIT</code>.
+ */
+public class DependencyGuard {
+
+    private static final int MIN_LIMIT = 1;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int WINDOW_SIZE = 50;
+    private static final int MIN_CALLS = 20;
+    private static final int HALF_OPEN_CALLS = 3;
+
+    private static final Map<String, DependencyGuard> GUARDS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final CircuitBreaker circuitBreaker;
+
+    public DependencyGuard(String name, AdaptiveConcurrencyLimiter limiter, CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public static DependencyGuard of(String name) {
+        return GUARDS.computeIfAbsent(name, DependencyGuard::fromEnv);
+    }
+
+    public static Collection<DependencyGuard> all() {
+        return GUARDS.values();
+    }
+
+    /**
+     * Makes the call if both the circuit breaker and the concurrency limiter admit it.
+     *
+     * @param call      the call to the dependency
+     * @param isFailure tells whether a completed call has to be accounted as a failure of the dependency
+     *                  (e.g. a 5xx response); exceptions are always failures
+     * @return the result of the call
+     * @throws DependencyUnavailableException if the call was rejected without being attempted
+     * @throws Exception                      the exception thrown by the call
+     */
+    public <T> T call(Callable<T> call, Predicate<T> isFailure) throws Exception {
+        if (!limiter.tryAcquire()) {
+            throw new DependencyUnavailableException(name + " concurrency limit reached (" + limiter.getLimit() + ")");
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            limiter.release();
+            throw new DependencyUnavailableException(name + " circuit breaker is open");
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.call();
+            failed = isFailure.test(result);
+            return result;
+        } finally {
+            limiter.onSample(System.nanoTime() - start, failed);
+            if (failed) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        }
+    }
+
+    /**
+     * @return true if calls are currently rejected by the circuit breaker
+     */
+    public boolean isOpen() {
+        return circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    public DependencyStatus getStatus() {
+        return DependencyStatus.builder()
+                .name(name)
+                .circuitState(circuitBreaker.getState().name())
+                .concurrencyLimit(limiter.getLimit())
+                .inFlight(limiter.getInFlight())
+                .build();
+    }
+
+    private static DependencyGuard fromEnv(String name) {
+        String prefix = name + "_GUARD_";
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                EnvUtil.getInt(prefix + "INITIAL_LIMIT", 20),
+                MIN_LIMIT,
+                EnvUtil.getInt(prefix + "MAX_LIMIT", 200),
+                EnvUtil.getLong(prefix + "LATENCY_THRESHOLD_MS", 2000),
+                BACKOFF_RATIO);
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+                WINDOW_SIZE,
+                MIN_CALLS,
+                EnvUtil.getInt(prefix + "FAILURE_RATE_THRESHOLD", 50),
+                EnvUtil.getLong(prefix + "OPEN_DURATION_MS", 30000),
+                HALF_OPEN_CALLS);
+        return new DependencyGuard(name, limiter, circuitBreaker);
+    }
+}
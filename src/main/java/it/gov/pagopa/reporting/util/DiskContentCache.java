@@ -0,0 +1,304 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.CacheStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of contents on the local disk of the function instance, bounded by the total size of the files.
+ * <p>
+ * Each content is a file named after the hash of its key, written to a temporary file first and then moved in place,
+ * so a file is either complete or missing. When the total size is over the bound the least recently used files are
+ * deleted, and a file older than the time to live is treated as missing and deleted. Hits are read through a memory
+ * mapping of the file.
+ * <p>
+ * The last modified time of a file is the time it was written, while its last access time is refreshed on each hit.
+ * The index is rebuilt from the directory when the cache is created, ordered by the last access time, so the cache
+ * survives a restart of the function host on the same instance.
+ */
+public class DiskContentCache {
+
+    private static final String SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final String name;
+    private final Path directory;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final Logger logger = Logger.getLogger(DiskContentCache.class.getName());
+
+    // file name -> file size and write time, in access order
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public DiskContentCache(String name, Path directory, long maxBytes) {
+        this(name, directory, maxBytes, 0);
+    }
+
+    /**
+     * @param ttlMillis how long a content is served after it has been written, 0 to keep it until evicted
+     */
+    public DiskContentCache(String name, Path directory, long maxBytes, long ttlMillis) {
+        this.name = name;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        load();
+    }
+
+    /**
+     * @return the cached content, or null if missing
+     */
+    public FlowContent get(String key) {
+        String fileName = fileName(key);
+        synchronized (this) {
+            // get, not containsKey, to move the entry to the most recently used
+            Entry entry = index.get(fileName);
+            if (entry == null || isExpired(entry.writtenAt())) {
+                if (entry != null) {
+                    remove(fileName);
+                    expirations++;
+                }
+                misses++;
+                return null;
+            }
+        }
+        Path file = directory.resolve(fileName);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Files.getFileAttributeView(file, BasicFileAttributeView.class)
+                    .setTimes(null, FileTime.fromMillis(System.currentTimeMillis()), null);
+            synchronized (this) {
+                hits++;
+            }
+            return new MappedContent(mapped);
+        } catch (IOException e) {
+            // deleted by another instance sharing the directory, or not readable
+            logger.log(Level.WARNING, () -> String.format("[DiskContentCache] %s read failed: %s", name, e.getMessage()));
+            synchronized (this) {
+                Entry entry = index.remove(fileName);
+                if (entry != null) {
+                    totalBytes -= entry.size();
+                }
+                misses++;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the content is cached and not expired, without counting a hit or a miss nor refreshing its recency
+     */
+    public boolean contains(String key) {
+        String fileName = fileName(key);
+        synchronized (this) {
+            // containsKey, unlike get, leaves the access order unchanged
+            if (!index.containsKey(fileName)) {
+                return false;
+            }
+        }
+        if (ttlMillis <= 0) {
+            return true;
+        }
+        try {
+            return !isExpired(Files.getLastModifiedTime(directory.resolve(fileName)).toMillis());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores the content, unless it is larger than the whole cache. Storage errors are logged and ignored.
+     */
+    public void put(String key, FlowContent content) {
+        if (maxBytes <= 0 || content.size() > maxBytes) {
+            return;
+        }
+        String fileName = fileName(key);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, fileName, TEMP_SUFFIX);
+            try (InputStream in = content.openStream(); OutputStream out = Files.newOutputStream(temp)) {
+                in.transferTo(out);
+            }
+            Files.move(temp, directory.resolve(fileName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+            synchronized (this) {
+                Entry previous = index.put(fileName, new Entry(content.size(), System.currentTimeMillis()));
+                totalBytes += content.size() - (previous != null ? previous.size() : 0);
+                evict();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, () -> String.format("[DiskContentCache] %s write failed: %s", name, e.getMessage()));
+        } finally {
+            if (temp != null) {
+                delete(temp);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        index.keySet().forEach(fileName -> delete(directory.resolve(fileName)));
+        index.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized CacheStats getStats() {
+        return CacheStats.builder()
+                .name(name)
+                .size(index.size())
+                .hits(hits)
+                .misses(misses)
+                .evictions(evictions)
+                .expirations(expirations)
+                .bytes(totalBytes)
+                .maxBytes(maxBytes)
+                .build();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> eldest = index.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue().size();
+            evictions++;
+            delete(directory.resolve(entry.getKey()));
+        }
+    }
+
+    private synchronized void load() {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path file : stream) {
+                    String fileName = file.getFileName().toString();
+                    if (fileName.endsWith(TEMP_SUFFIX)) {
+                        // left by an interrupted write
+                        delete(file);
+                    } else if (fileName.endsWith(SUFFIX)) {
+                        files.add(file);
+                    }
+                }
+            }
+            List<BasicFileAttributes> attributes = new ArrayList<>(files.size());
+            for (Path file : files) {
+                attributes.add(attributes(file));
+            }
+            Integer[] order = new Integer[files.size()];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, Comparator.comparing(i -> attributes.get(i).lastAccessTime()));
+            for (int i : order) {
+                BasicFileAttributes file = attributes.get(i);
+                index.put(files.get(i).getFileName().toString(), new Entry(file.size(), file.lastModifiedTime().toMillis()));
+                totalBytes += file.size();
+            }
+            evict();
+            logger.log(Level.INFO, () -> String.format("[DiskContentCache] %s loaded %d files, %d bytes", name, index.size(), totalBytes));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, () -> String.format("[DiskContentCache] %s load failed: %s", name, e.getMessage()));
+        }
+    }
+
+    private static String fileName(String key) {
+        return HexFormat.of().formatHex(ETags.newDigest().digest(key.getBytes(StandardCharsets.UTF_8))) + SUFFIX;
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    private boolean isExpired(long writtenAt) {
+        return ttlMillis > 0 && System.currentTimeMillis() - writtenAt > ttlMillis;
+    }
+
+    private void remove(String fileName) {
+        Entry entry = index.remove(fileName);
+        if (entry != null) {
+            totalBytes -= entry.size();
+            delete(directory.resolve(fileName));
+        }
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // still mapped by a reader on some platforms, it is deleted at the next load
+            logger.log(Level.FINE, () -> String.format("[DiskContentCache] %s delete failed: %s", name, e.getMessage()));
+        }
+    }
+
+    private record Entry(long size, long writtenAt) {
+    }
+
+    private record MappedContent(ByteBuffer mapped) implements FlowContent {
+
+        @Override
+        public long size() {
+            return mapped.capacity();
+        }
+
+        @Override
+        public InputStream openStream() {
+            ByteBuffer buffer = mapped.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (!buffer.hasRemaining()) {
+                        return -1;
+                    }
+                    int count = Math.min(len, buffer.remaining());
+                    buffer.get(b, off, count);
+                    return count;
+                }
+
+                @Override
+                public int available() {
+                    return buffer.remaining();
+                }
+            };
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[mapped.capacity()];
+            mapped.duplicate().get(bytes);
+            return bytes;
+        }
+    }
+}
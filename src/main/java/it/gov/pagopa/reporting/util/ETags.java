@@ -0,0 +1,100 @@
+package it.gov.pagopa.reporting.util;
+
+import com.microsoft.azure.functions.HttpRequestMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Strong entity tags for the function responses and evaluation of the <code>If-None-Match</code> request header.
+ * <p>
+ * The tag is the first 128 bits of the SHA-256 digest of the content, so equal contents always get the same tag
+ * on every function instance.
+ */
+public final class ETags {
+
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String ETAG = "ETag";
+
+    private ETags() {
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the quoted tag of the content hashed so far by the digest
+     */
+    public static String of(MessageDigest digest) {
+        return '"' + HexFormat.of().formatHex(digest.digest(), 0, 16) + '"';
+    }
+
+    public static String of(String content) {
+        return of(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String of(byte[] content) {
+        MessageDigest digest = newDigest();
+        digest.update(content);
+        return of(digest);
+    }
+
+    /**
+     * @return the tag of the content read from the stream, which is closed
+     */
+    public static String of(InputStream content) throws IOException {
+        MessageDigest digest = newDigest();
+        try (DigestInputStream in = new DigestInputStream(content, digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return of(digest);
+    }
+
+    /**
+     * @return the If-None-Match header of the request, or null if missing
+     */
+    public static String ifNoneMatch(HttpRequestMessage<?> request) {
+        return RequestHeaders.get(request, IF_NONE_MATCH);
+    }
+
+    /**
+     * @return the tag of another representation, e.g. another media type, of the content with the given tag
+     */
+    public static String variant(String etag, String representation) {
+        return etag.substring(0, etag.length() - 1) + "-" + representation + '"';
+    }
+
+    /**
+     * Evaluates an If-None-Match header with the weak comparison required by RFC 9110.
+     *
+     * @return true if the header matches the tag, so that a 304 Not Modified can be returned
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String opaqueTag = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || opaque(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,101 @@
+package it.gov.pagopa.reporting.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import it.gov.pagopa.reporting.model.Fdr3Metadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+
+/**
+ * Parses a page of the FDR3 flow list with a streaming parser, reading the body as it arrives.
+ * <p>
+ * Only the fdr and flowDate fields of each element are read, and the flowDate is decoded by {@link IsoDateTime}.
+ * When an upper bound is given each element is checked as soon as it has been read, and only the elements
+ * whose flowDate is not after the bound are added to the list. Elements without fdr or flowDate are skipped.
+ */
+public final class Fdr3ListParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private Fdr3ListParser() {
+    }
+
+    /**
+     * @param body       the FDR3 response body
+     * @param upperBound the latest flowDate to keep, or null to keep all the elements
+     * @param flows      the list the kept elements are added to
+     * @return the page metadata, or null if missing
+     */
+    public static Fdr3Metadata parse(InputStream body, OffsetDateTime upperBound, CompactFlowList flows) throws IOException {
+        long upperBoundExclusive = upperBound != null ? upperBound.toEpochSecond() + 1 : Long.MAX_VALUE;
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+            Fdr3Metadata metadata = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("metadata".equals(field) && value == JsonToken.START_OBJECT) {
+                    metadata = readMetadata(parser);
+                } else if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                    readData(parser, upperBoundExclusive, flows);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return metadata;
+        }
+    }
+
+    private static Fdr3Metadata readMetadata(JsonParser parser) throws IOException {
+        Fdr3Metadata.Fdr3MetadataBuilder metadata = Fdr3Metadata.builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "pageSize" -> metadata.pageSize(parser.getValueAsInt());
+                case "pageNumber" -> metadata.pageNumber(parser.getValueAsInt());
+                case "totPage" -> metadata.totPage(parser.getValueAsInt());
+                default -> parser.skipChildren();
+            }
+        }
+        return metadata.build();
+    }
+
+    private static void readData(JsonParser parser, long upperBoundExclusive, CompactFlowList flows) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String fdr = null;
+            String flowDate = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "fdr" -> fdr = parser.getValueAsString();
+                    case "flowDate" -> flowDate = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+            if (fdr == null || flowDate == null) {
+                continue;
+            }
+            long localEpochSecond = IsoDateTime.toLocalEpochSecond(flowDate);
+            if (localEpochSecond - IsoDateTime.offsetSeconds(flowDate) < upperBoundExclusive) {
+                flows.add(fdr, localEpochSecond);
+            }
+        }
+    }
+
+    private static void expect(JsonToken token, JsonToken expected) throws IOException {
+        if (token != expected) {
+            throw new IOException("Unexpected FDR3 response, expected " + expected + " but found " + token);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package it.gov.pagopa.reporting.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content of a reporting flow, held in memory, in a temporary file or in the local disk cache.
+ * <p>
+ * The content can be read many times, also concurrently.
+ */
+public interface FlowContent {
+
+    long size();
+
+    InputStream openStream() throws IOException;
+
+    /**
+     * @return the content, which must not be modified since it can be shared
+     */
+    byte[] toByteArray() throws IOException;
+}
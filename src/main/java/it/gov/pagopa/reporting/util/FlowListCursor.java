@@ -0,0 +1,48 @@
+package it.gov.pagopa.reporting.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor of the GetFlowList pagination, pointing to the last flow of a page.
+ * <p>
+ * The cursor carries the date and the id of the flow rather than its position, so a page is still
+ * continued correctly after the cached list has been refreshed with new flows.
+ */
+public final class FlowListCursor {
+
+    private static final String VERSION = "1";
+
+    private FlowListCursor() {
+    }
+
+    /**
+     * @return the cursor of the next page, pointing to the last flow of the given non-empty page
+     */
+    public static String next(CompactFlowList page) {
+        int last = page.size() - 1;
+        String value = VERSION + "|" + page.getFlowDate(last) + "|" + page.getFlowId(last);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the index of the list the page of the cursor starts from
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static int startIndex(CompactFlowList flows, String cursor) {
+        String[] fields;
+        try {
+            fields = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        if (fields.length != 3 || !VERSION.equals(fields[0])) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        try {
+            return flows.indexAfter(Long.parseLong(fields[1]), fields[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package it.gov.pagopa.reporting.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.gov.pagopa.reporting.model.FlowPayment;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Single payments of a reporting flow, ready to be returned in pages.
+ * <p>
+ * The XML is parsed once with StAX and each payment is written as a JSON object, preceded by a comma, into a buffer
+ * moved to a temporary file when it grows large. The offset of each object in the buffer is kept, so a page is a
+ * single slice of the buffer: later pages are served without parsing the XML or serializing the payments again.
+ */
+public final class FlowPaymentIndex {
+
+    private static final String PAYMENT = "datiSingoliPagamenti";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XmlStreams.newInputFactory();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final SpillBuffer payments;
+    // offsets[i] is the start of the payment i, offsets[size] is the end of the buffer
+    private final long[] offsets;
+    private final int size;
+
+    private FlowPaymentIndex(SpillBuffer payments, long[] offsets, int size) {
+        this.payments = payments;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    public static FlowPaymentIndex build(InputStream xml, int spillThreshold) throws XMLStreamException, IOException {
+        SpillBuffer payments = new SpillBuffer(spillThreshold, "flow-payments");
+        long[] offsets = new long[64];
+        int size = 0;
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(xml);
+        try (payments) {
+            reader.nextTag();
+            int depth = 0;
+            FlowPayment payment = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (depth == 0 && PAYMENT.equals(reader.getLocalName())) {
+                        payment = new FlowPayment();
+                        depth++;
+                    } else if (depth == 1 && payment != null) {
+                        // getElementText consumes the end element
+                        set(payment, reader.getLocalName(), reader.getElementText().trim());
+                    } else {
+                        depth++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 0) {
+                        break;
+                    }
+                    depth--;
+                    if (depth == 0 && payment != null) {
+                        if (size + 1 == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                        }
+                        offsets[size++] = payments.size();
+                        payments.write(',');
+                        payments.write(OBJECT_MAPPER.writeValueAsBytes(payment));
+                        payment = null;
+                    }
+                }
+            }
+            offsets[size] = payments.size();
+        } finally {
+            reader.close();
+        }
+        return new FlowPaymentIndex(payments, offsets, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the bytes held on the heap: the offsets, and the payments unless they have been moved to a file
+     */
+    public long heapBytes() {
+        return (long) offsets.length * Long.BYTES + (payments.isSpilled() ? 0 : payments.size());
+    }
+
+    /**
+     * @return the payments from <code>from</code> (included) to <code>to</code> (excluded), as a JSON array
+     */
+    public byte[] page(int from, int to) throws IOException {
+        if (from < 0 || from > to || to > size) {
+            throw new IndexOutOfBoundsException("Invalid page " + from + "-" + to + " of " + size + " payments.");
+        }
+        if (from == to) {
+            return new byte[]{'[', ']'};
+        }
+        // the slice starts with a comma, replaced by the opening bracket
+        int length = Math.toIntExact(offsets[to] - offsets[from]);
+        byte[] page = new byte[length + 1];
+        try (InputStream in = payments.openStream()) {
+            in.skipNBytes(offsets[from]);
+            in.readNBytes(page, 0, length);
+        }
+        page[0] = '[';
+        page[length] = ']';
+        return page;
+    }
+
+    private static void set(FlowPayment payment, String name, String value) {
+        switch (name) {
+            case "identificativoUnivocoVersamento" -> payment.setIuv(value);
+            case "identificativoUnivocoRiscossione" -> payment.setIur(value);
+            case "indiceDatiSingoloPagamento" -> payment.setTransferIndex(Integer.valueOf(value));
+            case "singoloImportoPagato" -> payment.setAmount(new BigDecimal(value));
+            case "codiceEsitoSingoloPagamento" -> payment.setOutcome(value);
+            case "dataEsitoSingoloPagamento" -> payment.setOutcomeDate(value);
+            default -> {
+                // not returned
+            }
+        }
+    }
+}
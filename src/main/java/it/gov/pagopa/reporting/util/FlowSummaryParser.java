@@ -0,0 +1,95 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.FlowSummary;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reads the header of a FlussoRiversamento XML with StAX.
+ * <p>
+ * The header comes before the single payments (datiSingoliPagamenti), so the parsing stops at the first payment:
+ * only the beginning of a flow of many MB is read, and decompressed when the stream is a gzip one.
+ */
+public final class FlowSummaryParser {
+
+    private static final String PAYMENT = "datiSingoliPagamenti";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XmlStreams.newInputFactory();
+
+    private FlowSummaryParser() {
+    }
+
+    public static FlowSummary parse(InputStream xml) throws XMLStreamException {
+        FlowSummary summary = new FlowSummary();
+        // local names of the open elements, the root excluded
+        Deque<String> path = new ArrayDeque<>();
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(xml);
+        try {
+            reader.nextTag();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (path.isEmpty() && PAYMENT.equals(name)) {
+                        break;
+                    }
+                    path.push(name);
+                    if (isLeaf(name)) {
+                        // getElementText consumes the end element
+                        set(summary, path, reader.getElementText().trim());
+                        path.pop();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (path.isEmpty()) {
+                        break;
+                    }
+                    path.pop();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return summary;
+    }
+
+    private static boolean isLeaf(String name) {
+        return switch (name) {
+            case "identificativoFlusso", "dataOraFlusso", "identificativoUnivocoRegolamento", "dataRegolamento",
+                 "codiceIdentificativoUnivoco", "denominazioneMittente", "denominazioneRicevente",
+                 "numeroTotalePagamenti", "importoTotalePagamenti" -> true;
+            default -> false;
+        };
+    }
+
+    private static void set(FlowSummary summary, Deque<String> path, String value) {
+        // the outermost element, under the root
+        String section = path.peekLast();
+        switch (path.peek()) {
+            case "identificativoFlusso" -> summary.setFlowId(value);
+            case "dataOraFlusso" -> summary.setFlowDate(value);
+            case "identificativoUnivocoRegolamento" -> summary.setRegulationId(value);
+            case "dataRegolamento" -> summary.setRegulationDate(value);
+            case "codiceIdentificativoUnivoco" -> {
+                if ("istitutoMittente".equals(section)) {
+                    summary.setPspId(value);
+                } else if ("istitutoRicevente".equals(section)) {
+                    summary.setOrganizationId(value);
+                }
+            }
+            case "denominazioneMittente" -> summary.setPspName(value);
+            case "denominazioneRicevente" -> summary.setOrganizationName(value);
+            case "numeroTotalePagamenti" -> summary.setTotalPayments(Long.valueOf(value));
+            case "importoTotalePagamenti" -> summary.setTotalAmount(new BigDecimal(value));
+            default -> {
+                // not part of the summary
+            }
+        }
+    }
+}
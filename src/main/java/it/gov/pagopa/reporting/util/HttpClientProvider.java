@@ -0,0 +1,122 @@
+package it.gov.pagopa.reporting.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Outbound HTTP layer shared by every function hosted by the instance, used to call GPD, FDR1 and FDR3.
+ * <p>
+ * A single {@link HttpClient} keeps the connections alive across invocations, so TLS handshakes and
+ * connection setup are paid once per connection instead of once per request, and negotiates HTTP/2
+ * when the server supports it. It is configured by:
+ * <ul>
+ *     <li><code>HTTP_CONNECT_TIMEOUT_MS</code> (default 5000) and <code>HTTP_READ_TIMEOUT_MS</code> (default 30000),
+ *     applied both to the response headers and to the streamed body, see {@link #readBody(InputStream, Callable)};</li>
+ *     <li><code>HTTP_POOL_MAX_CONNECTIONS</code>, the maximum number of idle connections kept in the pool
+ *     (default 0, unbounded), and <code>HTTP_KEEPALIVE_TIMEOUT_S</code> (default 120);</li>
+ *     <li><code>HTTP_CLIENT_HTTP2</code> (default true), to force HTTP/1.1 when false.</li>
+ * </ul>
+ */
+public final class HttpClientProvider {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofMillis(EnvUtil.getLong("HTTP_CONNECT_TIMEOUT_MS", 5000));
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(EnvUtil.getLong("HTTP_READ_TIMEOUT_MS", 30000));
+
+    private static final HttpClient CLIENT;
+
+    private static final ExecutorService BODY_READERS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "http-body-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // the pool settings are read by the JDK client when its implementation is first loaded
+        setPropertyIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(EnvUtil.getInt("HTTP_POOL_MAX_CONNECTIONS", 0)));
+        setPropertyIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(EnvUtil.getLong("HTTP_KEEPALIVE_TIMEOUT_S", 120)));
+
+        CLIENT = HttpClient.newBuilder()
+                .version(EnvUtil.getBoolean("HTTP_CLIENT_HTTP2", true) ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    private HttpClientProvider() {
+    }
+
+    public static HttpClient getClient() {
+        return CLIENT;
+    }
+
+    /**
+     * @return a request builder for the URI, with the configured read timeout
+     */
+    public static HttpRequest.Builder newRequest(URI uri) {
+        return HttpRequest.newBuilder().uri(uri).timeout(READ_TIMEOUT);
+    }
+
+    /**
+     * Reads a streamed response body within the read timeout: the timeout of the request only bounds the wait for
+     * the response headers, so a stalled body would block the reading thread forever. On timeout the body is closed,
+     * which fails the pending read and releases its thread.
+     *
+     * @param body the body of the response
+     * @param read reads the body
+     * @return the result of the read
+     * @throws HttpTimeoutException if the body was not read within <code>HTTP_READ_TIMEOUT_MS</code>
+     */
+    public static <T> T readBody(InputStream body, Callable<T> read) throws Exception {
+        return readBody(body, read, READ_TIMEOUT.toMillis());
+    }
+
+    static <T> T readBody(InputStream body, Callable<T> read, long timeoutMillis) throws Exception {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return read.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, BODY_READERS).orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                closeQuietly(body);
+                throw new HttpTimeoutException("response body not read within " + timeoutMillis + " ms");
+            }
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (InterruptedException e) {
+            closeQuietly(body);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // the read is failed anyway
+        }
+    }
+
+    private static void setPropertyIfAbsent(String name, String value) {
+        if (System.getProperty(name) == null) {
+            System.setProperty(name, value);
+        }
+    }
+}
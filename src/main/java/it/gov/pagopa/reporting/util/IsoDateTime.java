@@ -0,0 +1,187 @@
+package it.gov.pagopa.reporting.util;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Fast conversions between ISO-8601 date-times and epoch seconds, for the fixed format used by FDR3
+ * (<code>yyyy-MM-ddTHH:mm:ss[.fraction](Z|+HH:mm|-HH:mm)</code>).
+ * <p>
+ * The fields are read at fixed positions without creating intermediate objects; any other format falls back to
+ * {@link OffsetDateTime#parse(CharSequence)}. The fraction of second is ignored.
+ */
+public final class IsoDateTime {
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private static final int[] DIGIT_POSITIONS = {0, 1, 2, 3, 5, 6, 8, 9, 11, 12, 14, 15, 17, 18};
+
+    private static final int[] DAYS_IN_MONTH = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private IsoDateTime() {
+    }
+
+    /**
+     * @return the seconds from 1970-01-01T00:00:00 to the wall-clock date-time, ignoring the offset
+     */
+    public static long toLocalEpochSecond(String value) {
+        if (!isFixedFormat(value)) {
+            return OffsetDateTime.parse(value).toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+        }
+        long epochDay = toEpochDay(digits(value, 0, 4), digits(value, 5, 2), digits(value, 8, 2));
+        return epochDay * SECONDS_PER_DAY + digits(value, 11, 2) * 3600L + digits(value, 14, 2) * 60L + digits(value, 17, 2);
+    }
+
+    /**
+     * @return the offset from UTC of the date-time, in seconds
+     */
+    public static int offsetSeconds(String value) {
+        if (!isFixedFormat(value)) {
+            return OffsetDateTime.parse(value).getOffset().getTotalSeconds();
+        }
+        int zone = zoneStart(value);
+        if (value.charAt(zone) == 'Z') {
+            return 0;
+        }
+        int seconds = digits(value, zone + 1, 2) * 3600 + digits(value, zone + 4, 2) * 60;
+        return value.charAt(zone) == '-' ? -seconds : seconds;
+    }
+
+    /**
+     * @return the seconds from the epoch to the instant of the date-time
+     */
+    public static long toEpochSecond(String value) {
+        return toLocalEpochSecond(value) - offsetSeconds(value);
+    }
+
+    /**
+     * Appends the wall-clock date-time as <code>yyyy-MM-ddTHH:mm:ss</code>.
+     */
+    public static void appendLocal(StringBuilder out, long localEpochSecond) {
+        long epochDay = Math.floorDiv(localEpochSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(localEpochSecond, SECONDS_PER_DAY);
+
+        // civil date from the day count, see https://howardhinnant.github.io/date_algorithms.html
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        pad(out, year, 4).append('-');
+        pad(out, month, 2).append('-');
+        pad(out, day, 2).append('T');
+        pad(out, secondOfDay / 3600, 2).append(':');
+        pad(out, secondOfDay / 60 % 60, 2).append(':');
+        pad(out, secondOfDay % 60, 2);
+    }
+
+    public static String formatLocal(long localEpochSecond) {
+        StringBuilder out = new StringBuilder(19);
+        appendLocal(out, localEpochSecond);
+        return out.toString();
+    }
+
+    /**
+     * @return whether the value is a valid <code>yyyy-MM-ddTHH:mm:ss[.fraction]</code> date-time, with or without
+     * the offset, e.g. a flowDate received from a client
+     */
+    public static boolean isDateTime(String value) {
+        if (value == null || value.length() < 19 || !isFixedDateTime(value)) {
+            return false;
+        }
+        int end = 19;
+        if (end < value.length() && value.charAt(end) == '.') {
+            do {
+                end++;
+            } while (end < value.length() && isDigit(value.charAt(end)));
+            if (end == 20) {
+                return false;
+            }
+        }
+        return end == value.length() || isFixedZone(value);
+    }
+
+    private static boolean isFixedFormat(String value) {
+        return value.length() >= 20 && isFixedDateTime(value) && isFixedZone(value);
+    }
+
+    private static boolean isFixedDateTime(String value) {
+        if (value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T'
+                || value.charAt(13) != ':' || value.charAt(16) != ':') {
+            return false;
+        }
+        for (int i : DIGIT_POSITIONS) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        return month >= 1 && month <= 12 && day >= 1 && day <= DAYS_IN_MONTH[month - 1]
+                && (month != 2 || day != 29 || isLeapYear(year)) && digits(value, 11, 2) <= 23
+                && digits(value, 14, 2) <= 59 && digits(value, 17, 2) <= 59;
+    }
+
+    private static boolean isFixedZone(String value) {
+        int zone = zoneStart(value);
+        if (zone == value.length() - 1) {
+            return value.charAt(zone) == 'Z';
+        }
+        return zone == value.length() - 6 && (value.charAt(zone) == '+' || value.charAt(zone) == '-')
+                && isDigit(value.charAt(zone + 1)) && isDigit(value.charAt(zone + 2)) && value.charAt(zone + 3) == ':'
+                && isDigit(value.charAt(zone + 4)) && isDigit(value.charAt(zone + 5));
+    }
+
+    private static int zoneStart(String value) {
+        int i = 19;
+        if (value.charAt(i) == '.') {
+            i++;
+            while (i < value.length() && isDigit(value.charAt(i))) {
+                i++;
+            }
+        }
+        return Math.min(i, value.length() - 1);
+    }
+
+    private static long toEpochDay(long year, int month, int day) {
+        // days from civil date, see https://howardhinnant.github.io/date_algorithms.html
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int digits(String value, int from, int count) {
+        int result = 0;
+        for (int i = from; i < from + count; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static StringBuilder pad(StringBuilder out, long value, int width) {
+        if (value < 0 || value >= 10000) {
+            return out.append(value);
+        }
+        for (long divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,53 @@
+package it.gov.pagopa.reporting.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor made of single-threaded lanes: every task is run on the lane selected by hashing its key,
+ * so tasks with the same key run one at a time in submission order, while tasks with different keys
+ * run concurrently (unless their keys hash on the same lane).
+ */
+public class KeyedExecutor {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    public KeyedExecutor(int laneCount, String threadNamePrefix) {
+        this.lanes = new ThreadPoolExecutor[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    new NamedThreadFactory(threadNamePrefix + "-lane-" + i));
+        }
+    }
+
+    public <T> Future<T> submit(Object key, Callable<T> task) {
+        return lanes[laneOf(key)].submit(task);
+    }
+
+    public int laneOf(Object key) {
+        return Math.floorMod(key == null ? 0 : spread(key.hashCode()), lanes.length);
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @return for each lane, the number of tasks waiting to be run
+     */
+    public int[] getQueueDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].getQueue().size();
+        }
+        return depths;
+    }
+
+    // same as HashMap, so that keys differing only in the high bits do not share the lane
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,116 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.PrefetchStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads entries in the background, before they are requested, and tracks whether they are requested afterwards.
+ * <p>
+ * A submission never waits: when the executor is saturated the entry is not prefetched. A prefetched entry is
+ * <i>used</i> when it is requested, <i>wasted</i> when it leaves the tracking window, of the last
+ * <code>maxTracked</code> entries, without being requested.
+ */
+public class Prefetcher<K> {
+
+    private final String name;
+    private final Executor executor;
+    private final Logger logger = Logger.getLogger(Prefetcher.class.getName());
+
+    // insertion order, the eldest are dropped as wasted
+    private final Map<K, Boolean> tracked;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder loaded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder used = new LongAdder();
+    private final LongAdder wasted = new LongAdder();
+
+    public Prefetcher(String name, Executor executor, int maxTracked) {
+        this.name = name;
+        this.executor = executor;
+        this.tracked = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Boolean> eldest) {
+                if (size() > maxTracked) {
+                    wasted.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Loads the entry in the background, unless it is already prefetched.
+     *
+     * @return false if the entry is already prefetched or the executor is saturated
+     */
+    public boolean submit(K key, Callable<?> loader) {
+        synchronized (tracked) {
+            if (tracked.putIfAbsent(key, Boolean.TRUE) != null) {
+                return false;
+            }
+        }
+        try {
+            executor.execute(() -> load(key, loader));
+            submitted.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            untrack(key);
+            return false;
+        }
+    }
+
+    /**
+     * Records a request of the entry, counted as a use if the entry was prefetched.
+     */
+    public void markRequested(K key) {
+        if (untrack(key)) {
+            used.increment();
+        }
+    }
+
+    public PrefetchStats getStats() {
+        int pending;
+        synchronized (tracked) {
+            pending = tracked.size();
+        }
+        return PrefetchStats.builder()
+                .name(name)
+                .submitted(submitted.sum())
+                .rejected(rejected.sum())
+                .loaded(loaded.sum())
+                .failed(failed.sum())
+                .used(used.sum())
+                .wasted(wasted.sum())
+                .pending(pending)
+                .build();
+    }
+
+    private void load(K key, Callable<?> loader) {
+        try {
+            loader.call();
+            loaded.increment();
+        } catch (Exception e) {
+            failed.increment();
+            untrack(key);
+            logger.log(Level.FINE, () -> String.format("[Prefetcher] %s prefetch of %s failed: %s", name, key, e.getMessage()));
+        }
+    }
+
+    private boolean untrack(K key) {
+        synchronized (tracked) {
+            return tracked.remove(key) != null;
+        }
+    }
+}
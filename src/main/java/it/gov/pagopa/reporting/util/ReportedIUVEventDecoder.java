@@ -0,0 +1,101 @@
+package it.gov.pagopa.reporting.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes the reported IUV events received from the Event Hub, extracting only the fields needed to
+ * report the transfer to GPD (ID_DOMINIO, IUV and ID_TRANSFER).
+ * <p>
+ * The event is read with a streaming parser created by a shared {@link JsonFactory}: unknown fields
+ * and the values of the other fields are skipped without being bound, and malformed events are
+ * counted instead of raising an exception.
+ */
+public final class ReportedIUVEventDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final AtomicLong MALFORMED = new AtomicLong();
+
+    private ReportedIUVEventDecoder() {
+    }
+
+    /**
+     * @param event the JSON event
+     * @return the decoded event, or empty if the event is not a valid JSON object
+     */
+    public static Optional<ReportedIUVEventModel> decode(String event) {
+        if (event == null) {
+            MALFORMED.incrementAndGet();
+            return Optional.empty();
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(event)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                MALFORMED.incrementAndGet();
+                return Optional.empty();
+            }
+
+            String domainId = null;
+            String iuv = null;
+            Long idTransfer = null;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "ID_DOMINIO" -> domainId = textOf(parser, value);
+                    case "IUV" -> iuv = textOf(parser, value);
+                    case "ID_TRANSFER" -> idTransfer = longOf(parser, value);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (token != JsonToken.END_OBJECT) {
+                MALFORMED.incrementAndGet();
+                return Optional.empty();
+            }
+
+            return Optional.of(ReportedIUVEventModel.builder()
+                    .domainId(domainId)
+                    .iuv(iuv)
+                    .idTransfer(idTransfer)
+                    .build());
+        } catch (Exception e) {
+            MALFORMED.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the number of malformed events met by the function instance
+     */
+    public static long getMalformedCount() {
+        return MALFORMED.get();
+    }
+
+    private static String textOf(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value.isStructStart()) {
+            parser.skipChildren();
+            throw new IllegalArgumentException("unexpected structure in field " + parser.getCurrentName());
+        }
+        return parser.getText();
+    }
+
+    private static Long longOf(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        return Long.valueOf(textOf(parser, value).trim());
+    }
+}
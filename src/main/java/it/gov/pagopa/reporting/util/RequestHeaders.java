@@ -0,0 +1,30 @@
+package it.gov.pagopa.reporting.util;
+
+import com.microsoft.azure.functions.HttpRequestMessage;
+
+import java.util.Map;
+
+/**
+ * Case-insensitive access to the headers of a function request, whose names depend on the host.
+ */
+public final class RequestHeaders {
+
+    private RequestHeaders() {
+    }
+
+    /**
+     * @return the value of the header, or null if missing
+     */
+    public static String get(HttpRequestMessage<?> request, String name) {
+        Map<String, String> headers = request.getHeaders();
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package it.gov.pagopa.reporting.util;
+
+import com.microsoft.azure.functions.HttpRequestMessage;
+import it.gov.pagopa.reporting.model.CacheStats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of the function responses, negotiated from the <code>Accept-Encoding</code> request header.
+ * <p>
+ * Bodies shorter than <code>RESPONSE_COMPRESSION_MIN_SIZE</code> characters are not compressed. The compressed
+ * bodies are cached by the entity tag of their content, so a hot flow list is compressed once and then served
+ * many times. The flows are published by FDR1 already compressed, and are forwarded as they are.
+ */
+public final class ResponseCompression {
+
+    public static final String GZIP = "gzip";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String VARY = "Vary";
+
+    private static final int MIN_SIZE = EnvUtil.getInt("RESPONSE_COMPRESSION_MIN_SIZE", 1024);
+
+    private static final TtlCache<String, byte[]> COMPRESSED_BODIES = new TtlCache<>("compressed-bodies",
+            EnvUtil.getInt("RESPONSE_COMPRESSION_CACHE_MAX_SIZE", 200));
+    private static final long COMPRESSED_BODIES_TTL_MILLIS = EnvUtil.getLong("RESPONSE_COMPRESSION_CACHE_TTL_SECONDS", 3600) * 1000;
+
+    private ResponseCompression() {
+    }
+
+    /**
+     * @return true if the body should be sent compressed to the client of the request
+     */
+    public static boolean useGzip(HttpRequestMessage<?> request, String body) {
+        return body.length() >= MIN_SIZE && isGzipAccepted(RequestHeaders.get(request, ACCEPT_ENCODING));
+    }
+
+    /**
+     * @return true if the client of the request accepts gzip
+     */
+    public static boolean acceptsGzip(HttpRequestMessage<?> request) {
+        return isGzipAccepted(RequestHeaders.get(request, ACCEPT_ENCODING));
+    }
+
+    /**
+     * @return true if gzip has a non-zero quality: its own, or the one of <code>*</code> when gzip is not listed
+     */
+    static boolean isGzipAccepted(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzipQuality = -1;
+        double anyQuality = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim();
+            if (GZIP.equalsIgnoreCase(name)) {
+                gzipQuality = Math.max(gzipQuality, qualityOf(params));
+            } else if ("*".equals(name)) {
+                anyQuality = Math.max(anyQuality, qualityOf(params));
+            }
+        }
+        // an explicit gzip takes precedence over *, q=0 is a refusal
+        return (gzipQuality >= 0 ? gzipQuality : anyQuality) > 0;
+    }
+
+    /**
+     * @param etag the entity tag of the body, identifying its content
+     * @return the body compressed with gzip
+     */
+    public static byte[] gzip(String etag, String body) {
+        byte[] compressed = COMPRESSED_BODIES.get(etag);
+        if (compressed == null) {
+            compressed = gzip(body.getBytes(StandardCharsets.UTF_8));
+            COMPRESSED_BODIES.put(etag, compressed, COMPRESSED_BODIES_TTL_MILLIS);
+        }
+        return compressed;
+    }
+
+    public static CacheStats getCacheStats() {
+        return COMPRESSED_BODIES.getStats();
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static double qualityOf(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String[] param = params[i].split("=", 2);
+            if (param.length == 2 && "q".equalsIgnoreCase(param[0].trim())) {
+                try {
+                    return Double.parseDouble(param[1].trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
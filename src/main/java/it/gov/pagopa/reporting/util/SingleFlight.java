@@ -0,0 +1,67 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.CoalescingStats;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses concurrent calls for the same key into a single execution.
+ * <p>
+ * The first caller for a key runs the loader, the callers arriving while it is in flight wait for its outcome:
+ * they all get the same value, or the same exception if the loader fails.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public V execute(K key, Callable<V> loader) throws Exception {
+        calls.increment();
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            collapsed.increment();
+            return await(existing);
+        }
+        try {
+            V value = loader.call();
+            flight.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public CoalescingStats getStats() {
+        return CoalescingStats.builder()
+                .name(name)
+                .calls(calls.sum())
+                .collapsed(collapsed.sum())
+                .inFlight(inFlight.size())
+                .build();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) throws Exception {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package it.gov.pagopa.reporting.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Output stream kept in memory up to a threshold, and moved to a temporary file when it grows over it.
+ * <p>
+ * Once closed, the content can be read many times, also concurrently, with {@link #openStream()}.
+ * The temporary file is deleted when the buffer is no longer reachable, so a buffer can be shared
+ * without tracking its last reader. A buffer with a single owner can be {@link #release() released} right away.
+ */
+public final class SpillBuffer extends OutputStream implements FlowContent {
+
+    private static final Cleaner CLEANER = Cleaner.create(new NamedThreadFactory("spill-cleaner"));
+
+    private final int threshold;
+    private final String prefix;
+
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private byte[] bytes;
+    private Path file;
+    private Cleaner.Cleanable cleanable;
+    private OutputStream fileOut;
+    private long size;
+
+    public SpillBuffer(int threshold, String prefix) {
+        this.threshold = threshold;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return a closed buffer holding the given bytes in memory
+     */
+    public static SpillBuffer of(byte[] content) {
+        SpillBuffer buffer = new SpillBuffer(Integer.MAX_VALUE, "content");
+        buffer.write(content, 0, content.length);
+        buffer.close();
+        return buffer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        try {
+            if (fileOut == null && memory.size() + (long) len > threshold) {
+                spill();
+            }
+            if (fileOut != null) {
+                fileOut.write(b, off, len);
+            } else {
+                memory.write(b, off, len);
+            }
+            size += len;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (fileOut != null) {
+            try {
+                fileOut.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else if (memory != null) {
+            bytes = memory.toByteArray();
+            memory = null;
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        if (file != null) {
+            return new BufferedInputStream(Files.newInputStream(file));
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public byte[] toByteArray() throws IOException {
+        if (file != null) {
+            return Files.readAllBytes(file);
+        }
+        return bytes;
+    }
+
+    /**
+     * Drops the content, deleting the temporary file now instead of when the buffer is no longer reachable.
+     * The buffer cannot be read afterwards.
+     */
+    public void release() {
+        close();
+        if (cleanable != null) {
+            cleanable.clean();
+        }
+        bytes = null;
+    }
+
+    private void spill() throws IOException {
+        Path spillFile = Files.createTempFile(prefix, ".tmp");
+        cleanable = CLEANER.register(this, new DeleteFile(spillFile));
+        fileOut = Files.newOutputStream(spillFile);
+        memory.writeTo(fileOut);
+        memory = null;
+        file = spillFile;
+    }
+
+    private record DeleteFile(Path file) implements Runnable {
+        @Override
+        public void run() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // the temporary directory is cleaned up by the host anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.CacheStats;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size-bounded in-memory cache whose entries expire after a per-entry time to live.
+ * <p>
+ * When the cache is full the least recently used entry is evicted. Expired entries are dropped lazily on access.
+ * With a weigher the cache is also bounded by the total weight of its values, e.g. their bytes on the heap: the least
+ * recently used entries are evicted until the total is within the bound, and a value heavier than the whole bound is
+ * not cached.
+ */
+public class TtlCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long totalBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public TtlCache(String name, int maxSize) {
+        this(name, maxSize, 0, null, System::currentTimeMillis);
+    }
+
+    /**
+     * @param maxBytes the bound of the total weight of the values
+     * @param weigher  the weight of a value, e.g. its bytes on the heap
+     */
+    public TtlCache(String name, int maxSize, long maxBytes, ToLongFunction<V> weigher) {
+        this(name, maxSize, maxBytes, weigher, System::currentTimeMillis);
+    }
+
+    TtlCache(String name, int maxSize, LongSupplier clock) {
+        this(name, maxSize, 0, null, clock);
+    }
+
+    TtlCache(String name, int maxSize, long maxBytes, ToLongFunction<V> weigher, LongSupplier clock) {
+        this.name = name;
+        this.maxSize = Math.max(1, maxSize);
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TtlCache.this.maxSize) {
+                    totalBytes -= eldest.getValue().bytes;
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cached value, or null if it is missing or expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt <= clock.getAsLong()) {
+            remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * @return the cached value, or null if it is missing or expired, without counting a hit or a miss
+     */
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && entry.expiresAt > clock.getAsLong() ? entry.value : null;
+    }
+
+    public synchronized void put(K key, V value, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        long bytes = weigher != null ? weigher.applyAsLong(value) : 0;
+        if (weigher != null && bytes > maxBytes) {
+            remove(key);
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, clock.getAsLong() + ttlMillis, bytes));
+        totalBytes += bytes - (previous != null ? previous.bytes : 0);
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (weigher != null && totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized CacheStats getStats() {
+        return CacheStats.builder()
+                .name(name)
+                .size(entries.size())
+                .maxSize(maxSize)
+                .hits(hits)
+                .misses(misses)
+                .evictions(evictions)
+                .expirations(expirations)
+                .bytes(weigher != null ? totalBytes : null)
+                .maxBytes(weigher != null ? maxBytes : null)
+                .build();
+    }
+
+    private void remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.bytes;
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt, long bytes) {
+    }
+}
@@ -0,0 +1,20 @@
+package it.gov.pagopa.reporting.util;
+
+import javax.xml.stream.XMLInputFactory;
+
+public final class XmlStreams {
+
+    private XmlStreams() {
+    }
+
+    /**
+     * @return a StAX factory for the flows, which come from outside: no DTD nor external entities
+     */
+    public static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
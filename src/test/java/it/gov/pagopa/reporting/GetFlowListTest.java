@@ -3,15 +3,19 @@ package it.gov.pagopa.reporting;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.security.InvalidKeyException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -29,13 +33,15 @@ import com.microsoft.azure.functions.HttpRequestMessage;
 import com.microsoft.azure.functions.HttpResponseMessage;
 import com.microsoft.azure.functions.HttpStatus;
 
-import it.gov.pagopa.reporting.model.Fdr3Metadata;
-import it.gov.pagopa.reporting.model.Fdr3Response;
 import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.util.CompactFlowList;
+import it.gov.pagopa.reporting.util.FlowListCursor;
 
 @ExtendWith(MockitoExtension.class)
 class GetFlowListTest {
 
+    private static final String ORGANIZATION_ID = "90000000000";
+
     @Spy
     GetFlowList function;
 
@@ -45,39 +51,27 @@ class GetFlowListTest {
     @Mock
     FlowsService flowsService;
 
-    @Test
-    void runOK_withFlowDate() throws Exception {
-
-        // general var
-        Logger logger = Logger.getLogger("testlogging");
-        Fdr3Response fdr3Resp = Fdr3Response.builder()
-            .metadata(Fdr3Metadata.builder().pageNumber(0).pageSize(0).totPage(0).build())
-            .count(0)
-            .data(new ArrayList<>())
-            .build();
-        String organizationId =  "90000000000";
+    @Mock
+    HttpRequestMessage<Optional<String>> request;
 
-        // precondition
-        when(context.getLogger()).thenReturn(logger);
-        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
-        doReturn(fdr3Resp).when(flowsService).fetchFdr3List(organizationId, "2022-01-01");
+    @Mock
+    HttpResponseMessage.Builder builder;
 
-        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
-        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+    Logger logger = Logger.getLogger("testlogging");
 
-        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
-        doReturn(builder).when(builder).header(anyString(), anyString());
-        doReturn(builder).when(builder).body(any());  
+    @Test
+    void runOK_withFlowDate() throws Exception {
 
-        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
-        Map<String,String> qp = new HashMap<>();
+        // precondition
+        givenResponse(HttpStatus.OK);
+        doReturn(new CompactFlowList()).when(flowsService).fetchFdr3List(ORGANIZATION_ID, "2022-01-01");
+        doReturn(builder).when(builder).body(any());
+        Map<String, String> qp = new HashMap<>();
         qp.put("flowDate", "2022-01-01");
         when(request.getQueryParameters()).thenReturn(qp);
-        doReturn(HttpStatus.OK).when(responseMock).getStatus();
-        doReturn(responseMock).when(builder).build();
 
         // test
-        HttpResponseMessage response = function.run(request, organizationId, context);
+        HttpResponseMessage response = function.run(request, ORGANIZATION_ID, context);
 
         // Asserts
         assertEquals(HttpStatus.OK, response.getStatus());
@@ -86,64 +80,88 @@ class GetFlowListTest {
     @Test
     void runOK_noFlowDate() throws Exception {
 
-        // general var
-        Logger logger = Logger.getLogger("testlogging");
-        Fdr3Response fdr3Resp = Fdr3Response.builder()
-            .metadata(Fdr3Metadata.builder().pageNumber(0).pageSize(0).totPage(0).build())
-            .count(0)
-            .data(new ArrayList<>())
-            .build();
-        String organizationId =  "90000000000";
-
         // precondition
-        when(context.getLogger()).thenReturn(logger);
-        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
-        doReturn(fdr3Resp).when(flowsService).fetchFdr3List(organizationId, null);
-
-        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
-        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
-
-        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
-        doReturn(builder).when(builder).header(anyString(), anyString());
+        givenResponse(HttpStatus.OK);
+        doReturn(new CompactFlowList()).when(flowsService).fetchFdr3List(ORGANIZATION_ID, null);
         doReturn(builder).when(builder).body(any());
 
-        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
-        doReturn(HttpStatus.OK).when(responseMock).getStatus();
-        doReturn(responseMock).when(builder).build();
-
         // test
-        HttpResponseMessage response = function.run(request, organizationId, context);
+        HttpResponseMessage response = function.run(request, ORGANIZATION_ID, context);
 
         // Asserts
         assertEquals(HttpStatus.OK, response.getStatus());
     }
 
-
     @Test
-    void runKO() throws Exception {
+    void runNotModified() throws Exception {
 
         // general var
-        Logger logger = Logger.getLogger("testlogging");
-        String organizationId =  "90000000000";
+        CompactFlowList flows = new CompactFlowList();
+        flows.add("2022-01-12PPAYITR1XXX-S239349322", 1641943865L);
 
         // precondition
-        when(context.getLogger()).thenReturn(logger);
-        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
-        doThrow(InvalidKeyException.class).when(flowsService).fetchFdr3List(organizationId, "2022-01-01");
+        givenResponse(HttpStatus.NOT_MODIFIED);
+        doReturn(flows).when(flowsService).fetchFdr3List(ORGANIZATION_ID, null);
+        doReturn(Map.of("If-None-Match", "\"other\", " + flows.getETag())).when(request).getHeaders();
+
+        // test
+        HttpResponseMessage response = function.run(request, ORGANIZATION_ID, context);
 
-        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
-        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+        // Asserts
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatus());
+        verify(request).createResponseBuilder(HttpStatus.NOT_MODIFIED);
+        // the client already has the list, no flow is prefetched
+        verify(flowsService, never()).prefetchFdr1Flows(anyString(), any());
+        verify(builder, never()).body(any());
+    }
 
-        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
-        doReturn(builder).when(builder).header(anyString(), anyString());
+    @Test
+    void runOK_pageNdjson() throws Exception {
+
+        // general var
+        CompactFlowList flows = new CompactFlowList();
+        flows.add("flow-3", 1641943865L);
+        flows.add("flow-2", 1641943864L);
+        flows.add("flow-1", 1641943863L);
+
+        // precondition
+        givenResponse(HttpStatus.OK);
+        doReturn(flows).when(flowsService).fetchFdr3List(ORGANIZATION_ID, null);
+        doReturn(Map.of("accept", "application/x-ndjson")).when(request).getHeaders();
         doReturn(builder).when(builder).body(any());
+        Map<String, String> qp = new HashMap<>();
+        qp.put("limit", "2");
+        when(request.getQueryParameters()).thenReturn(qp);
 
-        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
-        doReturn(HttpStatus.BAD_REQUEST).when(responseMock).getStatus();
-        doReturn(responseMock).when(builder).build();
+        // test
+        HttpResponseMessage response = function.run(request, ORGANIZATION_ID, context);
+
+        // Asserts
+        assertEquals(HttpStatus.OK, response.getStatus());
+        verify(builder).body("{\"flowId\":\"flow-3\",\"flowDate\":\"2022-01-11T23:31:05\"}\n"
+                + "{\"flowId\":\"flow-2\",\"flowDate\":\"2022-01-11T23:31:04\"}\n");
+        String nextCursor = FlowListCursor.next(flows.slice(0, 2));
+        verify(builder).header("X-Next-Cursor", nextCursor);
+        // the newest flows of the returned page are prefetched
+        verify(flowsService).prefetchFdr1Flows(eq(ORGANIZATION_ID), argThat(page -> page.size() == 2 && "flow-3".equals(page.getFlowId(0))));
+
+        // next page, the last one
+        qp.put("cursor", nextCursor);
+        function.run(request, ORGANIZATION_ID, context);
+        verify(builder).body("{\"flowId\":\"flow-1\",\"flowDate\":\"2022-01-11T23:31:03\"}\n");
+        verify(builder, times(1)).header(eq("X-Next-Cursor"), anyString());
+    }
+
+    @Test
+    void runKO() throws Exception {
+
+        // precondition
+        givenResponse(HttpStatus.BAD_REQUEST);
+        doThrow(InvalidKeyException.class).when(flowsService).fetchFdr3List(ORGANIZATION_ID, "2022-01-01");
+        doReturn(builder).when(builder).body(any());
 
         // test
-        HttpResponseMessage response = function.run(request, organizationId, context);
+        HttpResponseMessage response = function.run(request, ORGANIZATION_ID, context);
 
         // Asserts
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
@@ -155,7 +173,7 @@ class GetFlowListTest {
         // general var
         Logger loggerMock = Logger.getLogger("testLogger");
         FlowsService flowsService = new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", loggerMock);
-        String organizationId = "12345678901";        
+        String organizationId = "12345678901";
         String oldFlowDate = OffsetDateTime.now()
                 .minusYears(2)
                 .format(DateTimeFormatter.ISO_LOCAL_DATE); // Formato yyyy-MM-dd
@@ -168,4 +186,16 @@ class GetFlowListTest {
         // Assert that the exception message is correct
         Assertions.assertEquals("The date cannot be older than 1 month.", exception.getMessage());
     }
+
+    private void givenResponse(HttpStatus status) {
+        when(context.getLogger()).thenReturn(logger);
+        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
+
+        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
+        doReturn(builder).when(builder).header(anyString(), anyString());
+
+        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
+        doReturn(status).when(responseMock).getStatus();
+        doReturn(responseMock).when(builder).build();
+    }
 }
@@ -0,0 +1,112 @@
+package it.gov.pagopa.reporting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.microsoft.azure.functions.ExecutionContext;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+
+import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.util.FlowPaymentIndex;
+
+@ExtendWith(MockitoExtension.class)
+class GetFlowPaymentsTest {
+
+    @Spy
+    GetFlowPayments function;
+
+    @Mock
+    ExecutionContext context;
+
+    @Mock
+    FlowsService flowsService;
+
+    @Test
+    void runOK_page() throws Exception {
+
+        // general var
+        Logger logger = Logger.getLogger("testlogging");
+        String organizationId = "90000000000";
+        String flowId = "2022-01-12PPAYITR1XXX-S239349322";
+        FlowPaymentIndex payments;
+        try (InputStream xml = getClass().getClassLoader().getResourceAsStream("dataOra##idPa##idFlow.xml")) {
+            payments = FlowPaymentIndex.build(xml, 1024);
+        }
+
+        // precondition
+        when(context.getLogger()).thenReturn(logger);
+        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
+        when(flowsService.fetchFdr1FlowPayments(organizationId, flowId)).thenReturn(payments);
+
+        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
+        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+
+        doReturn(Map.of("offset", "2", "limit", "10")).when(request).getQueryParameters();
+        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
+        doReturn(builder).when(builder).header(anyString(), anyString());
+        doReturn(builder).when(builder).body(any());
+
+        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
+        doReturn(HttpStatus.OK).when(responseMock).getStatus();
+        doReturn(responseMock).when(builder).build();
+
+        // test
+        HttpResponseMessage response = function.run(request, organizationId, flowId, context);
+
+        // Asserts
+        assertEquals(HttpStatus.OK, response.getStatus());
+        verify(builder).header("X-Total-Count", "3");
+        verify(builder).body(aryEq(payments.page(2, 3)));
+    }
+
+    @Test
+    void runBadRequest() throws Exception {
+
+        // general var
+        Logger logger = Logger.getLogger("testlogging");
+        String organizationId = "90000000000";
+        String flowId = "2022-01-12PPAYITR1XXX-S239349322";
+
+        // precondition
+        when(context.getLogger()).thenReturn(logger);
+        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
+
+        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
+        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+
+        doReturn(Map.of("limit", "0")).when(request).getQueryParameters();
+        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
+        doReturn(builder).when(builder).header(anyString(), anyString());
+        doReturn(builder).when(builder).body(anyString());
+
+        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
+        doReturn(HttpStatus.BAD_REQUEST).when(responseMock).getStatus();
+        doReturn(responseMock).when(builder).build();
+
+        // test
+        HttpResponseMessage response = function.run(request, organizationId, flowId, context);
+
+        // Asserts
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        verify(request).createResponseBuilder(HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,104 @@
+package it.gov.pagopa.reporting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.microsoft.azure.functions.ExecutionContext;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+
+import it.gov.pagopa.reporting.model.FlowSummary;
+import it.gov.pagopa.reporting.service.FlowsService;
+
+@ExtendWith(MockitoExtension.class)
+class GetFlowSummaryTest {
+
+    @Spy
+    GetFlowSummary function;
+
+    @Mock
+    ExecutionContext context;
+
+    @Mock
+    FlowsService flowsService;
+
+    @Test
+    void runOK() throws Exception {
+
+        // general var
+        Logger logger = Logger.getLogger("testlogging");
+        String organizationId = "90000000000";
+        String flowId = "2022-01-12PPAYITR1XXX-S239349322";
+
+        // precondition
+        when(context.getLogger()).thenReturn(logger);
+        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
+        when(flowsService.fetchFdr1FlowSummary(organizationId, flowId)).thenReturn(FlowSummary.builder()
+                .flowId(flowId).totalPayments(3L).totalAmount(new BigDecimal("60.00")).build());
+
+        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
+        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+
+        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
+        doReturn(builder).when(builder).header(anyString(), anyString());
+        doReturn(builder).when(builder).body(anyString());
+
+        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
+        doReturn(HttpStatus.OK).when(responseMock).getStatus();
+        doReturn(responseMock).when(builder).build();
+
+        // test
+        HttpResponseMessage response = function.run(request, organizationId, flowId, context);
+
+        // Asserts
+        assertEquals(HttpStatus.OK, response.getStatus());
+        verify(builder).body("{\"flowId\":\"2022-01-12PPAYITR1XXX-S239349322\",\"totalPayments\":3,\"totalAmount\":60.00}");
+    }
+
+    @Test
+    void runKO() throws Exception {
+
+        // general var
+        Logger logger = Logger.getLogger("testlogging");
+        String organizationId = "90000000000";
+        String flowId = "2022-01-12PPAYITR1XXX-S239349322";
+
+        // precondition
+        when(context.getLogger()).thenReturn(logger);
+        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
+        doThrow(RuntimeException.class).when(flowsService).fetchFdr1FlowSummary(anyString(), anyString());
+
+        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
+        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+
+        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
+        doReturn(builder).when(builder).header(anyString(), anyString());
+
+        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
+        doReturn(HttpStatus.NOT_FOUND).when(responseMock).getStatus();
+        doReturn(responseMock).when(builder).build();
+
+        // test
+        HttpResponseMessage response = function.run(request, organizationId, flowId, context);
+
+        // Asserts
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatus());
+    }
+}
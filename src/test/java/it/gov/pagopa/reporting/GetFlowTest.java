@@ -1,13 +1,17 @@
 package it.gov.pagopa.reporting;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Logger;
 
@@ -24,10 +28,18 @@ import com.microsoft.azure.functions.HttpResponseMessage;
 import com.microsoft.azure.functions.HttpStatus;
 
 import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.util.ETags;
+import it.gov.pagopa.reporting.util.GzipFixtures;
+import it.gov.pagopa.reporting.util.SpillBuffer;
 
 @ExtendWith(MockitoExtension.class)
 class GetFlowTest {
 
+    private static final String ORGANIZATION_ID = "90000000000";
+    private static final String FLOW_ID = "2022-01-12PPAYITR1XXX-S239349322";
+    private static final String FLOW_DATE = "2022-01-11T23:31:05";
+    private static final byte[] GZIP_XML = GzipFixtures.gzip("<FlussoRiversamento/>");
+
     @Spy
     GetFlow function;
 
@@ -37,67 +49,90 @@ class GetFlowTest {
     @Mock
     FlowsService flowsService;
 
+    @Mock
+    HttpRequestMessage<Optional<String>> request;
+
+    @Mock
+    HttpResponseMessage.Builder builder;
+
+    Logger logger = Logger.getLogger("testlogging");
+
     @Test
     void runOK() throws Exception {
 
-        // general var
-        Logger logger = Logger.getLogger("testlogging");
-        String organizationId = "90000000000";
-        String flowId = "2022-01-12PPAYITR1XXX-S239349322";
-        String flowDate = "2022-01-11T23:31:05";
+        // precondition
+        givenResponse(HttpStatus.OK);
+        when(flowsService.fetchFdr1FlowGzip(ORGANIZATION_ID, FLOW_ID, FLOW_DATE)).thenReturn(SpillBuffer.of(GZIP_XML));
+        doReturn(builder).when(builder).body(anyString());
+
+        // test
+        HttpResponseMessage response = function.run(request, ORGANIZATION_ID, FLOW_ID, FLOW_DATE, context);
+
+        // Asserts
+        assertEquals(HttpStatus.OK, response.getStatus());
+    }
+
+    @Test
+    void runNotModified() throws Exception {
 
         // precondition
-        when(context.getLogger()).thenReturn(logger);
-        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
-        when(flowsService.fetchFdr1Flow(organizationId, flowId)).thenReturn("");
+        givenResponse(HttpStatus.NOT_MODIFIED);
+        when(flowsService.fetchFdr1FlowGzip(ORGANIZATION_ID, FLOW_ID, FLOW_DATE)).thenReturn(SpillBuffer.of(GZIP_XML));
+        doReturn(Map.of("if-none-match", ETags.of(GZIP_XML))).when(request).getHeaders();
 
-        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
-        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+        // test
+        HttpResponseMessage response = function.run(request, ORGANIZATION_ID, FLOW_ID, FLOW_DATE, context);
 
-        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
-        doReturn(builder).when(builder).header(anyString(), anyString());
-        doReturn(builder).when(builder).body(anyString());
+        // Asserts
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatus());
+        verify(request).createResponseBuilder(HttpStatus.NOT_MODIFIED);
+        verify(builder).header(ETags.ETAG, ETags.of(GZIP_XML));
+        verify(builder, never()).body(any());
+    }
 
-        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
-        doReturn(HttpStatus.OK).when(responseMock).getStatus();
-        doReturn(responseMock).when(builder).build();
+    @Test
+    void runOK_gzip() throws Exception {
+
+        // precondition
+        givenResponse(HttpStatus.OK);
+        when(flowsService.fetchFdr1FlowGzip(ORGANIZATION_ID, FLOW_ID, FLOW_DATE)).thenReturn(SpillBuffer.of(GZIP_XML));
+        doReturn(Map.of("accept-encoding", "gzip, deflate, br")).when(request).getHeaders();
+        doReturn(builder).when(builder).body(any());
 
         // test
-        HttpResponseMessage response = function.run(request, organizationId, flowId, flowDate, context);
+        HttpResponseMessage response = function.run(request, ORGANIZATION_ID, FLOW_ID, FLOW_DATE, context);
 
         // Asserts
         assertEquals(HttpStatus.OK, response.getStatus());
+        verify(builder).header("Content-Encoding", "gzip");
+        verify(builder).header(ETags.ETAG, ETags.variant(ETags.of(GZIP_XML), "gzip"));
+        // the bytes published by FDR1 are forwarded as they are
+        verify(builder).body(aryEq(GZIP_XML));
     }
 
     @Test
     void runKO() throws Exception {
 
-        // general var
-        Logger logger = Logger.getLogger("testlogging");
-        String organizationId =  "90000000000";
-        String flowId = "2022-01-12PPAYITR1XXX-S239349322";
-        String flowDate = "2022-01-11T23:31:05";
-
         // precondition
+        givenResponse(HttpStatus.NOT_FOUND);
+        doThrow(BlobStorageException.class).when(flowsService).fetchFdr1FlowGzip(anyString(), anyString(), anyString());
+
+        // test
+        HttpResponseMessage response = function.run(request, ORGANIZATION_ID, FLOW_ID, FLOW_DATE, context);
+
+        // Asserts
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatus());
+    }
+
+    private void givenResponse(HttpStatus status) {
         when(context.getLogger()).thenReturn(logger);
         doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
-        doThrow(BlobStorageException.class).when(flowsService).fetchFdr1Flow(anyString(), anyString());
-
-        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
-        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
 
         doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
         doReturn(builder).when(builder).header(anyString(), anyString());
 
         HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
-        doReturn(HttpStatus.NOT_FOUND).when(responseMock).getStatus();
+        doReturn(status).when(responseMock).getStatus();
         doReturn(responseMock).when(builder).build();
-
-        // test
-        HttpResponseMessage response = function.run(request, organizationId, flowId, flowDate, context);
-
-        // Asserts
-        assertEquals(HttpStatus.NOT_FOUND, response.getStatus());
     }
-
 }
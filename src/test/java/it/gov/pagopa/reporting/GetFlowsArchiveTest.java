@@ -0,0 +1,156 @@
+package it.gov.pagopa.reporting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.microsoft.azure.functions.ExecutionContext;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+
+import it.gov.pagopa.reporting.exception.PayloadTooLargeException;
+import it.gov.pagopa.reporting.service.FlowsService;
+import it.gov.pagopa.reporting.util.CompactFlowList;
+import it.gov.pagopa.reporting.util.IsoDateTime;
+
+@ExtendWith(MockitoExtension.class)
+class GetFlowsArchiveTest {
+
+    @Spy
+    GetFlowsArchive function;
+
+    @Mock
+    ExecutionContext context;
+
+    @Mock
+    FlowsService flowsService;
+
+    @Test
+    void runOK_flowDate() throws Exception {
+
+        // general var
+        Logger logger = Logger.getLogger("testlogging");
+        String organizationId = "90000000000";
+        CompactFlowList flows = new CompactFlowList();
+        flows.add("flow-1", IsoDateTime.toLocalEpochSecond("2022-01-11T23:31:05Z"));
+        flows.add("flow-2", IsoDateTime.toLocalEpochSecond("2022-01-11T10:00:00Z"));
+
+        // precondition
+        when(context.getLogger()).thenReturn(logger);
+        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
+        when(flowsService.fetchFdr3List(organizationId, "2022-01-11")).thenReturn(flows);
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("flow-1", "2022-01-11T23:31:05");
+        expected.put("flow-2", "2022-01-11T10:00:00");
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(2).write(new byte[]{'P', 'K'});
+            return List.of("flow-2");
+        }).when(flowsService).writeFlowsArchive(eq(organizationId), eq(expected), any(), anyLong());
+
+        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
+        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+
+        doReturn(Map.of("flowDate", "2022-01-11")).when(request).getQueryParameters();
+        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
+        doReturn(builder).when(builder).header(anyString(), anyString());
+        doReturn(builder).when(builder).body(any());
+
+        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
+        doReturn(HttpStatus.OK).when(responseMock).getStatus();
+        doReturn(responseMock).when(builder).build();
+
+        // test
+        HttpResponseMessage response = function.run(request, organizationId, context);
+
+        // Asserts
+        assertEquals(HttpStatus.OK, response.getStatus());
+        verify(builder).header("Content-Type", "application/zip");
+        verify(builder).header("X-Failed-Flows", "1");
+    }
+
+    @Test
+    void runBadRequest() throws Exception {
+
+        // general var
+        Logger logger = Logger.getLogger("testlogging");
+        String organizationId = "90000000000";
+
+        // precondition
+        when(context.getLogger()).thenReturn(logger);
+        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
+
+        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
+        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+
+        doReturn(Map.of("flowIds", "flow-1", "flowDate", "2022-01-11")).when(request).getQueryParameters();
+        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
+        doReturn(builder).when(builder).header(anyString(), anyString());
+        doReturn(builder).when(builder).body(anyString());
+
+        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
+        doReturn(HttpStatus.BAD_REQUEST).when(responseMock).getStatus();
+        doReturn(responseMock).when(builder).build();
+
+        // test
+        HttpResponseMessage response = function.run(request, organizationId, context);
+
+        // Asserts
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        verify(request).createResponseBuilder(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void runPayloadTooLarge() throws Exception {
+
+        // general var
+        Logger logger = Logger.getLogger("testlogging");
+        String organizationId = "90000000000";
+
+        // precondition
+        when(context.getLogger()).thenReturn(logger);
+        doReturn(flowsService).when(function).getFlowsServiceInstance(logger);
+        doThrow(new PayloadTooLargeException("The archive is larger than 10 bytes."))
+                .when(flowsService).writeFlowsArchive(eq(organizationId), any(), any(), anyLong());
+
+        final HttpResponseMessage.Builder builder = mock(HttpResponseMessage.Builder.class);
+        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+
+        doReturn(Map.of("flowIds", "flow-1,flow-2")).when(request).getQueryParameters();
+        doReturn(builder).when(request).createResponseBuilder(any(HttpStatus.class));
+        doReturn(builder).when(builder).header(anyString(), anyString());
+        doReturn(builder).when(builder).body(anyString());
+
+        HttpResponseMessage responseMock = mock(HttpResponseMessage.class);
+        doReturn(HttpStatus.PAYLOAD_TOO_LARGE).when(responseMock).getStatus();
+        doReturn(responseMock).when(builder).build();
+
+        // test
+        HttpResponseMessage response = function.run(request, organizationId, context);
+
+        // Asserts
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatus());
+        verify(request).createResponseBuilder(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+}
@@ -0,0 +1,42 @@
+package it.gov.pagopa.reporting;
+
+import com.microsoft.azure.functions.ExecutionContext;
+import it.gov.pagopa.reporting.model.RetryQueueMetrics;
+import it.gov.pagopa.reporting.service.GpdRetryQueue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.logging.Logger;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GpdReportRetryTest {
+
+    @Spy
+    GpdReportRetry function;
+
+    @Mock
+    ExecutionContext context;
+
+    @Mock
+    GpdRetryQueue retryQueue;
+
+    @Test
+    void runOK() {
+        Logger logger = Logger.getLogger("testlogging");
+        when(context.getLogger()).thenReturn(logger);
+        doReturn(retryQueue).when(function).getGpdRetryQueueInstance();
+        when(retryQueue.drainDue()).thenReturn(2);
+        when(retryQueue.drainSpilled()).thenReturn(3);
+        when(retryQueue.getMetrics()).thenReturn(RetryQueueMetrics.builder().build());
+
+        function.run("timerInfo", context);
+
+        verify(retryQueue, times(1)).drainDue();
+        verify(retryQueue, times(1)).drainSpilled();
+    }
+}
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.functions.ExecutionContext;
 import com.microsoft.azure.functions.HttpStatus;
+import com.sun.net.httpserver.HttpServer;
 import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import it.gov.pagopa.reporting.service.GpdClient;
 import it.gov.pagopa.reporting.service.FlowsService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,8 +16,15 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.verification.VerificationMode;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,6 +40,8 @@ class GpdReportingSyncTest {
     @Mock
     ExecutionContext context;
 
+    private static final String BULK_REPORT_PATH = "/organizations/{organizationId}/paymentoptions/transfers/report";
+
 
 
     @Test
@@ -75,4 +86,89 @@ class GpdReportingSyncTest {
 
         Mockito.verify(function, times(1)).gpdReport(any(), any(), any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void duplicatedMessages() throws JsonProcessingException {
+        Logger logger = Logger.getLogger("testlogging");
+        when(context.getLogger()).thenReturn(logger);
+
+        List<String> messages = new ArrayList<>();
+        ReportedIUVEventModel msg = ReportedIUVEventModel.builder().domainId("77777777777").iuv("02030267565002997").idTransfer(2L).build();
+        var mapper = new ObjectMapper();
+        messages.add(mapper.writeValueAsString(msg));
+        messages.add(mapper.writeValueAsString(msg));
+
+        function.run(messages, context);
+
+        Mockito.verify(function, times(1)).gpdReport(any(), any(), any(), any());
+    }
+
+    @Test
+    void bulkReport() throws Exception {
+        Logger logger = Logger.getLogger("testlogging");
+        when(context.getLogger()).thenReturn(logger);
+
+        Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        HttpServer gpd = startGpdStub(requests, 200);
+        try {
+            String basePath = "http://localhost:" + gpd.getAddress().getPort();
+            doReturn(new GpdClient(basePath, "key", BULK_REPORT_PATH, logger)).when(function).getGpdClientInstance(any());
+
+            function.run(reportedEvents(List.of("11111111111", "22222222222"), 60), context);
+
+            // one bulk request for each organization instead of one request for each transfer
+            assertEquals(2, requests.get("bulk").get());
+            assertNull(requests.get("single"));
+            Mockito.verify(function, never()).gpdReport(any(), any(), any(), any());
+        } finally {
+            gpd.stop(0);
+        }
+    }
+
+    @Test
+    void bulkReportUnavailable() throws Exception {
+        Logger logger = Logger.getLogger("testlogging");
+        when(context.getLogger()).thenReturn(logger);
+
+        Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        HttpServer gpd = startGpdStub(requests, 404);
+        try {
+            String basePath = "http://localhost:" + gpd.getAddress().getPort();
+            doReturn(new GpdClient(basePath, "key", BULK_REPORT_PATH, logger)).when(function).getGpdClientInstance(any());
+
+            function.run(reportedEvents(List.of("33333333333", "44444444444"), 10), context);
+
+            // fallback to single reports
+            assertEquals(20, requests.get("single").get());
+            Mockito.verify(function, times(20)).gpdReport(any(), any(), any(), any());
+        } finally {
+            gpd.stop(0);
+        }
+    }
+
+    private List<String> reportedEvents(List<String> organizations, int eventsForOrganization) throws JsonProcessingException {
+        var mapper = new ObjectMapper();
+        List<String> messages = new ArrayList<>();
+        for (String organization : organizations) {
+            for (int i = 0; i < eventsForOrganization; i++) {
+                messages.add(mapper.writeValueAsString(ReportedIUVEventModel.builder()
+                        .domainId(organization).iuv(UUID.randomUUID().toString().replace("-", "")).idTransfer(1L).build()));
+            }
+        }
+        return messages;
+    }
+
+    private HttpServer startGpdStub(Map<String, AtomicInteger> requests, int bulkStatus) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/organizations", exchange -> {
+            boolean bulk = exchange.getRequestURI().getPath().endsWith("/paymentoptions/transfers/report");
+            requests.computeIfAbsent(bulk ? "bulk" : "single", k -> new AtomicInteger()).incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(bulk ? bulkStatus : 200, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        return server;
+    }
+}
@@ -70,6 +70,7 @@ class InfoTest {
         assertNotNull(response.getName());
         assertNotNull(response.getVersion());
         assertNotNull(response.getEnvironment());
+        assertNotNull(response.getReportingSync());
     }
 
     @SneakyThrows
@@ -0,0 +1,106 @@
+package it.gov.pagopa.reporting.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.gov.pagopa.reporting.model.Flow;
+import it.gov.pagopa.reporting.util.CompactFlowList;
+import it.gov.pagopa.reporting.util.IsoDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the flow list pipeline of GetFlowList, from the fdr and flowDate fields of the FDR3 elements to the
+ * JSON body: the previous one, parsing each flowDate with {@link OffsetDateTime} in the upper bound filter and again
+ * for formatting, sorting boxed {@link Flow}s and serializing them with Jackson, and the {@link CompactFlowList} one.
+ * <p>
+ * Run it with the GC profiler, which reports the allocated bytes per operation (gc.alloc.rate.norm):
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) it.gov.pagopa.reporting.benchmark.FlowListBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowListBenchmark {
+
+    private static final OffsetDateTime UPPER_BOUND = OffsetDateTime.parse("2024-01-01T23:59:59Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private String[] fdrs;
+    private String[] flowDates;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long dayStart = UPPER_BOUND.toEpochSecond() - 86399;
+        fdrs = new String[size];
+        flowDates = new String[size];
+        for (int i = 0; i < size; i++) {
+            fdrs[i] = "2024-01-01" + "PSP" + String.format("%05d", i % 1000) + "-S" + String.format("%09d", i);
+            // a tenth of the elements is after the upper bound
+            long epochSecond = dayStart + random.nextInt(86400 + 8640);
+            flowDates[i] = OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, random.nextInt(1000) * 1_000_000L), ZoneOffset.UTC).toString();
+        }
+    }
+
+    @Benchmark
+    public String offsetDateTimePipeline() throws Exception {
+        DateTimeFormatter outputFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+        List<Flow> flows = IntStream.range(0, size)
+                .filter(i -> OffsetDateTime.parse(flowDates[i]).isBefore(UPPER_BOUND.plusSeconds(1)))
+                .mapToObj(i -> new Flow(fdrs[i], OffsetDateTime.parse(flowDates[i]).format(outputFormatter)))
+                .sorted(Comparator.comparing(Flow::getFlowDate).reversed())
+                .toList();
+        return objectMapper.writeValueAsString(flows);
+    }
+
+    @Benchmark
+    public String compactPipeline() {
+        long upperBoundExclusive = UPPER_BOUND.toEpochSecond() + 1;
+        CompactFlowList flows = new CompactFlowList();
+        for (int i = 0; i < size; i++) {
+            long localEpochSecond = IsoDateTime.toLocalEpochSecond(flowDates[i]);
+            if (localEpochSecond - IsoDateTime.offsetSeconds(flowDates[i]) < upperBoundExclusive) {
+                flows.add(fdrs[i], localEpochSecond);
+            }
+        }
+        return flows.sortedNewestFirst().toJson();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FlowListBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package it.gov.pagopa.reporting.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import it.gov.pagopa.reporting.util.ReportedIUVEventDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the decoding of a reported IUV event done by {@link ReportedIUVEventDecoder} with the full
+ * binding of {@link ReportedIUVEventModel} previously done by GpdReportingSync.
+ * <p>
+ * Run it with the GC profiler, which reports the allocated bytes per event (gc.alloc.rate.norm):
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) it.gov.pagopa.reporting.benchmark.ReportedIUVEventDecoderBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportedIUVEventDecoderBenchmark {
+
+    private static final String EVENT = "{\"IUV\":\"02030267565002997\",\"IUR\":\"63e54a6b51694167ad30dafa0cb3a3c7\","
+            + "\"IMPORTO\":20.00,\"COD_ESITO\":0,\"DATA_ESITO_SINGOLO_PAGAMENTO\":\"2021-07-26\",\"IDSP\":\"2\","
+            + "\"ID_FLUSSO\":\"2021-07-27SELBIT2B-S003014897\",\"DATA_ORA_FLUSSO\":\"2021-07-27T12:00:07\","
+            + "\"ID_DOMINIO\":\"77777777777\",\"PSP\":\"SELBIT2B\",\"INT_PSP\":\"SELBIT2B\","
+            + "\"UNIQUE_ID\":\"2021-07-2777777777777SELBIT2B-S003014897\",\"INSERTED_TIMESTAMP\":\"2021-07-27T12:00:08.123\","
+            + "\"ID_TRANSFER\":2}";
+
+    private final ObjectMapper sharedObjectMapper = new ObjectMapper();
+
+    /**
+     * The previous implementation, with the ObjectMapper created for each batch.
+     */
+    @Benchmark
+    public ReportedIUVEventModel objectMapperPerBatch() throws Exception {
+        return new ObjectMapper().readValue(EVENT, ReportedIUVEventModel.class);
+    }
+
+    @Benchmark
+    public ReportedIUVEventModel sharedObjectMapper() throws Exception {
+        return sharedObjectMapper.readValue(EVENT, ReportedIUVEventModel.class);
+    }
+
+    @Benchmark
+    public ReportedIUVEventModel streamingDecoder() {
+        return ReportedIUVEventDecoder.decode(EVENT).orElseThrow();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReportedIUVEventDecoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
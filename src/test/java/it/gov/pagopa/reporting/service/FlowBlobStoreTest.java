@@ -0,0 +1,35 @@
+package it.gov.pagopa.reporting.service;
+
+import it.gov.pagopa.reporting.util.GzipFixtures;
+import it.gov.pagopa.reporting.util.SpillBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowBlobStoreTest {
+
+    @Test
+    void isValidId() {
+        assertTrue(FlowBlobStore.isValidId("90000000000"));
+        assertTrue(FlowBlobStore.isValidId("2021-07-27SELBIT2B-S003014897"));
+        assertFalse(FlowBlobStore.isValidId(null));
+        assertFalse(FlowBlobStore.isValidId(""));
+        assertFalse(FlowBlobStore.isValidId(".."));
+        assertFalse(FlowBlobStore.isValidId("flow##2024-01-01"));
+        assertFalse(FlowBlobStore.isValidId("org/flow"));
+    }
+
+    @Test
+    void flowDateOf() throws Exception {
+        SpillBuffer flow;
+        try (InputStream xml = getClass().getClassLoader().getResourceAsStream("dataOra##idPa##idFlow.xml")) {
+            flow = SpillBuffer.of(GzipFixtures.gzip(xml.readAllBytes()));
+        }
+
+        assertEquals("2021-07-27T12:00:07", FlowBlobStore.flowDateOf("2021-07-27SELBIT2B-S003014897", flow));
+        // not the requested flow
+        assertNull(FlowBlobStore.flowDateOf("other-flow", flow));
+    }
+}
@@ -12,6 +12,8 @@ import com.microsoft.azure.storage.table.CloudTable;
 import com.microsoft.azure.storage.table.CloudTableClient;
 import com.microsoft.azure.storage.table.TableRequestOptions;
 import it.gov.pagopa.reporting.model.Flow;
+import it.gov.pagopa.reporting.util.FlowContent;
+import it.gov.pagopa.reporting.util.SpillBuffer;
 import lombok.SneakyThrows;
 import org.junit.ClassRule;
 import org.junit.jupiter.api.Test;
@@ -20,10 +22,15 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.spy;
@@ -130,6 +137,37 @@ class FlowServiceIntegrationTest {
         }
     }
 
+    @Test
+    void flowBlobStore_writtenBackCompressed() throws Exception {
+        FlowBlobStore blobStore = new FlowBlobStore(storageConnectionString, "flowcache", logger);
+        String xml = "<FlussoRiversamento><identificativoFlusso>idFlowCached</identificativoFlusso>"
+                + "<dataOraFlusso>2024-01-01T10:00:00</dataOraFlusso></FlussoRiversamento>";
+        ByteArrayOutputStream gzipXml = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipXml)) {
+            gzip.write(xml.getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertNull(blobStore.read("idPa", "idFlowCached", "2024-01-01T10:00:00"));
+        blobStore.writeAsync("idPa", "idFlowCached", SpillBuffer.of(gzipXml.toByteArray())).join();
+
+        // named after its dataOraFlusso, read by another instance, compressed, and by getByFlow, decompressed
+        FlowContent stored = new FlowBlobStore(storageConnectionString, "flowcache", logger).read("idPa", "idFlowCached", "2024-01-01T10:00:00");
+        assertArrayEquals(gzipXml.toByteArray(), stored.toByteArray());
+        flowsService = new FlowsService(storageConnectionString, flowsTable, "flowcache", logger);
+        assertEquals(xml, flowsService.getByFlow("idPa", "idFlowCached", "2024-01-01T10:00:00"));
+    }
+
+    @Test
+    void flowBlobStore_plainBlobCompressed() throws Exception {
+        BlobServiceClient blobServiceClient = createContainer();
+        BlobClient blobClient = blobServiceClient.getBlobContainerClient(containerBlob).getBlobClient("dataOra##idPa##idFlowPlain.xml");
+        blobClient.upload(BinaryData.fromString("<FlussoRiversamento/>"), true);
+
+        FlowContent stored = new FlowBlobStore(storageConnectionString, containerBlob, logger).read("idPa", "idFlowPlain", "dataOra");
+
+        assertEquals("<FlussoRiversamento/>", new String(FlowsService.gunzip(stored), StandardCharsets.UTF_8));
+    }
+
     @SneakyThrows
     private void createTable() {
         try {
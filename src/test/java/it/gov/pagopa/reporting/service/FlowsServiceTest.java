@@ -0,0 +1,327 @@
+package it.gov.pagopa.reporting.service;
+
+import it.gov.pagopa.reporting.exception.PayloadTooLargeException;
+import it.gov.pagopa.reporting.model.Fdr3Metadata;
+import it.gov.pagopa.reporting.util.CompactFlowList;
+import it.gov.pagopa.reporting.util.FlowContent;
+import it.gov.pagopa.reporting.util.FlowPaymentIndex;
+import it.gov.pagopa.reporting.util.GzipFixtures;
+import it.gov.pagopa.reporting.util.IsoDateTime;
+import it.gov.pagopa.reporting.util.SpillBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FlowsServiceTest {
+
+    Logger logger = Logger.getLogger("testlogging");
+
+    @BeforeEach
+    void setUp() {
+        FlowsService.clearFdr3ListCache();
+        FlowsService.clearFdr1FlowDiskCache();
+        FlowsService.clearFlowPaymentsCache();
+    }
+
+    @Test
+    void fetchFdr3List_allPagesInOrder() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        String organizationId = "90000000000";
+        int totPage = 7;
+        for (int page = 1; page <= totPage; page++) {
+            // same flow date everywhere, so the sort keeps the page order
+            doAnswer(page(page, totPage, 3, "2024-01-01T10:00:00Z")).when(flowsService)
+                    .fetchFdr3Page(eq(organizationId), eq(page), anyString(), any(), any());
+        }
+
+        CompactFlowList flows = flowsService.fetchFdr3List(organizationId, null);
+
+        assertEquals(21, flows.size());
+        List<String> expected = new ArrayList<>();
+        for (int page = 1; page <= totPage; page++) {
+            for (int i = 0; i < 3; i++) {
+                expected.add("flow-" + page + "-" + i);
+            }
+        }
+        assertEquals(expected, flows.toFlows().stream().map(f -> f.getFlowId()).toList());
+        verify(flowsService, times(totPage)).fetchFdr3Page(eq(organizationId), anyInt(), anyString(), any(), any());
+    }
+
+    @Test
+    void fetchFdr3List_newestFirst() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        String organizationId = "90000000000";
+        doAnswer(page(1, 2, 2, "2024-01-01T10:00:00Z")).when(flowsService)
+                .fetchFdr3Page(eq(organizationId), eq(1), anyString(), any(), any());
+        doAnswer(page(2, 2, 2, "2024-01-02T10:00:00+02:00")).when(flowsService)
+                .fetchFdr3Page(eq(organizationId), eq(2), anyString(), any(), any());
+
+        CompactFlowList flows = flowsService.fetchFdr3List(organizationId, null);
+
+        assertEquals("[{\"flowId\":\"flow-2-0\",\"flowDate\":\"2024-01-02T10:00:00\"},"
+                + "{\"flowId\":\"flow-2-1\",\"flowDate\":\"2024-01-02T10:00:00\"},"
+                + "{\"flowId\":\"flow-1-0\",\"flowDate\":\"2024-01-01T10:00:00\"},"
+                + "{\"flowId\":\"flow-1-1\",\"flowDate\":\"2024-01-01T10:00:00\"}]", flows.toJson());
+    }
+
+    @Test
+    void fetchFdr3List_pageError() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        String organizationId = "90000000000";
+        doAnswer(page(1, 3, 3, "2024-01-01T10:00:00Z")).when(flowsService)
+                .fetchFdr3Page(eq(organizationId), eq(1), anyString(), any(), any());
+        doAnswer(page(2, 3, 3, "2024-01-01T10:00:00Z")).when(flowsService)
+                .fetchFdr3Page(eq(organizationId), eq(2), anyString(), any(), any());
+        doThrow(new RuntimeException("Error while calling FDR3")).when(flowsService)
+                .fetchFdr3Page(eq(organizationId), eq(3), anyString(), any(), any());
+
+        assertThrows(RuntimeException.class, () -> flowsService.fetchFdr3List(organizationId, null));
+    }
+
+    @Test
+    void fetchFdr3List_cached() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        String organizationId = "90000000000";
+        doAnswer(page(1, 1, 3, "2024-01-01T10:00:00Z")).when(flowsService)
+                .fetchFdr3Page(eq(organizationId), eq(1), anyString(), any(), any());
+        long hits = FlowsService.getFdr3ListCacheStats().getHits();
+
+        CompactFlowList first = flowsService.fetchFdr3List(organizationId, null);
+        CompactFlowList second = flowsService.fetchFdr3List(organizationId, null);
+
+        assertSame(first, second);
+        assertEquals(hits + 1, FlowsService.getFdr3ListCacheStats().getHits());
+        verify(flowsService, times(1)).fetchFdr3Page(eq(organizationId), anyInt(), anyString(), any(), any());
+    }
+
+    @Test
+    void fetchFdr3List_tooOldNotServedFromCache() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        String organizationId = "90000000000";
+        String flowDate = LocalDate.now(ZoneOffset.UTC).minusYears(1).toString();
+        long misses = FlowsService.getFdr3ListCacheStats().getMisses();
+
+        assertThrows(IllegalArgumentException.class, () -> flowsService.fetchFdr3List(organizationId, flowDate));
+
+        // rejected before the cache lookup
+        assertEquals(misses, FlowsService.getFdr3ListCacheStats().getMisses());
+        verify(flowsService, never()).fetchFdr3Page(anyString(), anyInt(), anyString(), any(), any());
+    }
+
+    @Test
+    void fetchFdr3Range_mergedNewestFirst() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        String organizationId = "90000000000";
+        // the default depth accepts only dates from tomorrow on
+        LocalDate first = LocalDate.now(ZoneOffset.UTC).plusDays(1);
+        for (int d = 0; d < 3; d++) {
+            CompactFlowList day = new CompactFlowList();
+            long dayStart = first.plusDays(d).toEpochDay() * 86400;
+            day.add("flow-" + d + "-late", dayStart + 3600 * 20);
+            day.add("flow-" + d + "-early", dayStart + 3600 * 2);
+            doReturn(day).when(flowsService).fetchFdr3List(organizationId, first.plusDays(d).toString());
+        }
+
+        CompactFlowList flows = flowsService.fetchFdr3Range(organizationId, first.toString(), first.plusDays(2).toString());
+
+        assertEquals(List.of("flow-2-late", "flow-2-early", "flow-1-late", "flow-1-early", "flow-0-late", "flow-0-early"),
+                flows.toFlows().stream().map(f -> f.getFlowId()).toList());
+    }
+
+    @Test
+    void fetchFdr3Range_invalid() {
+        FlowsService flowsService = new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger);
+
+        assertThrows(IllegalArgumentException.class, () -> flowsService.fetchFdr3Range("90000000000", "2024-01-02", "2024-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> flowsService.fetchFdr3Range("90000000000", "2024-01-01", "2024-03-01"));
+    }
+
+    @Test
+    void fetchFdr1Flow_decompressed() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        String xml = "<?xml version=\"1.0\"?>\r\n<FlussoRiversamento>\r\n</FlussoRiversamento>\r\n";
+        doReturn(SpillBuffer.of(GzipFixtures.gzip(xml))).when(flowsService).fetchFdr1FlowGzip("90000000000", "flow-1");
+
+        // the XML is returned as published, like the gzip bytes forwarded to the clients accepting gzip
+        assertEquals(xml, flowsService.fetchFdr1Flow("90000000000", "flow-1"));
+    }
+
+    @Test
+    void fetchFdr1FlowGzip_blobMissWrittenBack() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        FlowBlobStore blobStore = mock(FlowBlobStore.class);
+        SpillBuffer gzipXml = SpillBuffer.of(new byte[]{1, 2, 3});
+        doReturn(blobStore).when(flowsService).getFlowBlobStore();
+        doReturn(gzipXml).when(flowsService).loadFdr1Flow("90000000000", "flow-2");
+
+        assertSame(gzipXml, flowsService.fetchFdr1FlowGzip("90000000000", "flow-2", "2024-01-01T10:00:00"));
+        verify(blobStore).read("90000000000", "flow-2", "2024-01-01T10:00:00");
+        verify(blobStore).writeAsync("90000000000", "flow-2", gzipXml);
+
+        // then served from the local disk cache
+        assertArrayEquals(new byte[]{1, 2, 3}, flowsService.fetchFdr1FlowGzip("90000000000", "flow-2", "2024-01-01T10:00:00").toByteArray());
+        verify(flowsService, times(1)).loadFdr1Flow("90000000000", "flow-2");
+        verifyNoMoreInteractions(blobStore);
+    }
+
+    @Test
+    void fetchFdr1FlowGzip_blobHit() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        FlowBlobStore blobStore = mock(FlowBlobStore.class);
+        SpillBuffer gzipXml = SpillBuffer.of(new byte[]{1, 2, 3});
+        doReturn(blobStore).when(flowsService).getFlowBlobStore();
+        doReturn(gzipXml).when(blobStore).read("90000000000", "flow-3", "2024-01-01T10:00:00");
+
+        assertSame(gzipXml, flowsService.fetchFdr1FlowGzip("90000000000", "flow-3", "2024-01-01T10:00:00"));
+        verify(flowsService, never()).loadFdr1Flow(anyString(), anyString());
+        verify(blobStore, never()).writeAsync(anyString(), anyString(), any());
+    }
+
+    @Test
+    void fetchFdr1FlowGzip_invalidFlowDateSkipsBlobLookup() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        FlowBlobStore blobStore = mock(FlowBlobStore.class);
+        SpillBuffer gzipXml = SpillBuffer.of(new byte[]{1, 2, 3});
+        doReturn(blobStore).when(flowsService).getFlowBlobStore();
+        doReturn(gzipXml).when(flowsService).loadFdr1Flow("90000000000", "flow-4");
+
+        assertSame(gzipXml, flowsService.fetchFdr1FlowGzip("90000000000", "flow-4", "../2024-01-01"));
+        // the blob written back is named after the flow, not after the flowDate of the request
+        verify(blobStore, never()).read(anyString(), anyString(), anyString());
+        verify(blobStore).writeAsync("90000000000", "flow-4", gzipXml);
+    }
+
+    @Test
+    void fetchFdr1FlowGzip_invalidIdsSkipBlob() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        SpillBuffer gzipXml = SpillBuffer.of(new byte[]{1, 2, 3});
+        doReturn(gzipXml).when(flowsService).loadFdr1Flow("90000000000", "flow##5");
+
+        assertSame(gzipXml, flowsService.fetchFdr1FlowGzip("90000000000", "flow##5", "2024-01-01T10:00:00"));
+        verify(flowsService, never()).getFlowBlobStore();
+    }
+
+    @Test
+    void fetchFdr1FlowPayments_indexedOnce() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        byte[] gzipXml;
+        try (InputStream xml = getClass().getClassLoader().getResourceAsStream("dataOra##idPa##idFlow.xml")) {
+            gzipXml = GzipFixtures.gzip(xml.readAllBytes());
+        }
+        doReturn(SpillBuffer.of(gzipXml)).when(flowsService).fetchFdr1FlowGzip("90000000000", "flow-1");
+
+        FlowPaymentIndex payments = flowsService.fetchFdr1FlowPayments("90000000000", "flow-1");
+
+        assertEquals(3, payments.size());
+        assertSame(payments, flowsService.fetchFdr1FlowPayments("90000000000", "flow-1"));
+        verify(flowsService, times(1)).fetchFdr1FlowGzip("90000000000", "flow-1");
+    }
+
+    @Test
+    void writeFlowsArchive_entriesAndFailures() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        Map<String, String> flows = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            doReturn(SpillBuffer.of(GzipFixtures.gzip("<FlussoRiversamento>" + i + "</FlussoRiversamento>"))).when(flowsService).fetchFdr1FlowGzip("90000000000", "flow-" + i, null);
+            flows.put("flow-" + i, null);
+        }
+        doThrow(new RuntimeException("not found")).when(flowsService).fetchFdr1FlowGzip("90000000000", "flow-missing", null);
+        flows.put("flow-missing", null);
+        // not gzip, it fails while decompressed
+        doReturn(SpillBuffer.of(new byte[]{1, 2, 3})).when(flowsService).fetchFdr1FlowGzip("90000000000", "flow-corrupted", null);
+        flows.put("flow-corrupted", null);
+        // same entry name once sanitized
+        FlowContent flow7 = flowsService.fetchFdr1FlowGzip("90000000000", "flow-7", null);
+        doReturn(flow7).when(flowsService).fetchFdr1FlowGzip("90000000000", "flow/7", null);
+        doReturn(flow7).when(flowsService).fetchFdr1FlowGzip("90000000000", "flow:7", null);
+        flows.put("flow/7", null);
+        flows.put("flow:7", null);
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        List<String> failed = flowsService.writeFlowsArchive("90000000000", flows, archive, Long.MAX_VALUE);
+
+        assertEquals(Set.of("flow-missing", "flow-corrupted"), Set.copyOf(failed));
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(13, entries.size());
+        assertEquals("<FlussoRiversamento>7</FlussoRiversamento>", entries.get("flow-7.xml"));
+        assertEquals("<FlussoRiversamento>7</FlussoRiversamento>", entries.get("flow_7.xml"));
+        assertEquals("<FlussoRiversamento>7</FlussoRiversamento>", entries.get("flow_7-1.xml"));
+        assertEquals(Set.of("flow-missing", "flow-corrupted"), Set.of(entries.get("failed.txt").split("\n")));
+    }
+
+    @Test
+    void writeFlowsArchive_tooLarge() throws Exception {
+        FlowsService flowsService = spy(new FlowsService("fakeConnStr", "fakeTable", "fakeBlob", logger));
+        byte[] xml = new byte[10_000];
+        new Random(42).nextBytes(xml);
+        doReturn(SpillBuffer.of(GzipFixtures.gzip(xml))).when(flowsService).fetchFdr1FlowGzip("90000000000", "flow-big", null);
+        Map<String, String> flows = new LinkedHashMap<>();
+        flows.put("flow-big", null);
+
+        assertThrows(PayloadTooLargeException.class,
+                () -> flowsService.writeFlowsArchive("90000000000", flows, new ByteArrayOutputStream(), 1000));
+    }
+
+    @Test
+    void readXmlRendicontazione_streamed() throws Exception {
+        byte[] gzipXml = new byte[100_000];
+        new Random(42).nextBytes(gzipXml);
+        String body = "{\"identificativoFlusso\":\"flow-1\",\"pagamenti\":[{\"iuv\":\"1\"}],\"xmlRendicontazione\":\""
+                + Base64.getEncoder().encodeToString(gzipXml) + "\",\"other\":1}";
+
+        SpillBuffer out = new SpillBuffer(1024, "test");
+        try (out) {
+            FlowsService.readXmlRendicontazione(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+        }
+
+        assertTrue(out.isSpilled());
+        assertArrayEquals(gzipXml, out.toByteArray());
+        assertThrows(IOException.class, () -> FlowsService.readXmlRendicontazione(
+                new ByteArrayInputStream("{\"other\":1}".getBytes(StandardCharsets.UTF_8)), new SpillBuffer(1024, "test")));
+    }
+
+    private static Answer<Fdr3Metadata> page(int page, int totPage, int size, String flowDate) {
+        return invocation -> {
+            CompactFlowList flows = invocation.getArgument(4);
+            for (int i = 0; i < size; i++) {
+                flows.add("flow-" + page + "-" + i, IsoDateTime.toLocalEpochSecond(flowDate));
+            }
+            return Fdr3Metadata.builder().pageNumber(page).pageSize(size).totPage(totPage).build();
+        };
+    }
+}
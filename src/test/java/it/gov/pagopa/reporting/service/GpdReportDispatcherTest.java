@@ -0,0 +1,112 @@
+package it.gov.pagopa.reporting.service;
+
+import it.gov.pagopa.reporting.model.ReportOutcome;
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GpdReportDispatcherTest {
+
+    Logger logger = Logger.getLogger("testlogging");
+
+    @Test
+    void dispatch_outcomesInInputOrder() {
+        GpdReportDispatcher dispatcher = new GpdReportDispatcher(logger);
+        List<ReportedIUVEventModel> events = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            events.add(ReportedIUVEventModel.builder().domainId("77777777777").iuv("iuv" + i).idTransfer(1L).build());
+        }
+
+        // odd IUVs fail
+        List<ReportOutcome> outcomes = dispatcher.dispatch(events, e -> Integer.parseInt(e.getIuv().substring(3)) % 2 == 0
+                ? GpdClient.ReportResult.REPORTED : GpdClient.ReportResult.RETRYABLE);
+
+        assertEquals(20, outcomes.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("iuv" + i, outcomes.get(i).getIuv());
+            assertEquals(i % 2 == 0, outcomes.get(i).isReported());
+        }
+    }
+
+    @Test
+    void dispatch_concurrencyIsBounded() {
+        GpdReportDispatcher dispatcher = new GpdReportDispatcher(logger);
+        List<ReportedIUVEventModel> events = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            events.add(ReportedIUVEventModel.builder().domainId("77777777777").iuv("iuv" + i).idTransfer(1L).build());
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        List<ReportOutcome> outcomes = dispatcher.dispatch(events, e -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return GpdClient.ReportResult.REPORTED;
+        });
+
+        assertTrue(outcomes.stream().allMatch(ReportOutcome::isReported));
+        assertTrue(maxInFlight.get() <= GpdReportDispatcher.getMaxConcurrency());
+    }
+
+    @Test
+    void dispatch_reporterExceptionIsFailure() {
+        GpdReportDispatcher dispatcher = new GpdReportDispatcher(logger);
+        List<ReportedIUVEventModel> events = List.of(ReportedIUVEventModel.builder().domainId("77777777777").iuv("iuv").idTransfer(1L).build());
+
+        List<ReportOutcome> outcomes = dispatcher.dispatch(events, e -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertEquals(ReportOutcome.Status.FAILED, outcomes.get(0).getStatus());
+    }
+
+    @Test
+    void dispatch_permanentIsRejected() {
+        GpdReportDispatcher dispatcher = new GpdReportDispatcher(logger);
+        List<ReportedIUVEventModel> events = List.of(ReportedIUVEventModel.builder().domainId("77777777777").iuv("iuv").idTransfer(1L).build());
+
+        List<ReportOutcome> outcomes = dispatcher.dispatch(events, e -> GpdClient.ReportResult.PERMANENT);
+
+        assertEquals(ReportOutcome.Status.REJECTED, outcomes.get(0).getStatus());
+        assertFalse(outcomes.get(0).isReported());
+        assertFalse(outcomes.get(0).isRetryable());
+    }
+
+    @Test
+    void dispatch_sameOrganizationInOrder() {
+        GpdReportDispatcher dispatcher = new GpdReportDispatcher(logger);
+        List<ReportedIUVEventModel> events = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            events.add(ReportedIUVEventModel.builder().domainId("org" + (i % 3)).iuv(String.valueOf(i)).idTransfer(1L).build());
+        }
+        Map<String, List<Integer>> reportedByOrganization = new ConcurrentHashMap<>();
+
+        dispatcher.dispatch(events, e -> {
+            reportedByOrganization.computeIfAbsent(e.getDomainId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(Integer.parseInt(e.getIuv()));
+            return GpdClient.ReportResult.REPORTED;
+        });
+
+        // the events of each organization are reported in their original order
+        for (List<Integer> iuvs : reportedByOrganization.values()) {
+            List<Integer> sorted = new ArrayList<>(iuvs);
+            Collections.sort(sorted);
+            assertEquals(sorted, iuvs);
+        }
+        assertEquals(GpdReportDispatcher.getMaxConcurrency(), GpdReportDispatcher.getLaneQueueDepths().length);
+    }
+}
@@ -0,0 +1,132 @@
+package it.gov.pagopa.reporting.service;
+
+import com.microsoft.azure.storage.table.TableOperation;
+import it.gov.pagopa.reporting.model.ReportOutcome;
+import it.gov.pagopa.reporting.model.RetryQueueMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GpdRetryQueueTest {
+
+    Logger logger = Logger.getLogger("testlogging");
+
+    @Mock
+    GpdClient gpdClient;
+
+    ReportedTransferLedger ledger = new ReportedTransferLedger(null, null, logger);
+
+    @Test
+    void drainDue_afterBackoff() throws InterruptedException {
+        GpdRetryQueue retryQueue = new GpdRetryQueue(gpdClient, ledger, null, null, 10, logger);
+        when(gpdClient.isAvailable()).thenReturn(true);
+        when(gpdClient.report("retryOrg", "iuv1", "1")).thenReturn(GpdClient.ReportResult.REPORTED);
+
+        retryQueue.enqueueAll(List.of(failed("iuv1"), reported("iuv2")));
+        assertEquals(1, retryQueue.getMetrics().getDepth());
+
+        // the first backoff is at least half of the base delay
+        assertEquals(0, retryQueue.drainDue());
+        Thread.sleep(GpdRetryQueue.backoff(1) + 600);
+        assertEquals(1, retryQueue.drainDue());
+
+        RetryQueueMetrics metrics = retryQueue.getMetrics();
+        assertEquals(0, metrics.getDepth());
+        assertEquals(1, metrics.getEnqueued());
+        assertEquals(1, metrics.getSucceeded());
+        verify(gpdClient, times(1)).report("retryOrg", "iuv1", "1");
+    }
+
+    @Test
+    void drainDue_gpdUnavailable() throws InterruptedException {
+        GpdRetryQueue retryQueue = new GpdRetryQueue(gpdClient, ledger, null, null, 10, logger);
+        when(gpdClient.isAvailable()).thenReturn(false);
+
+        retryQueue.enqueueAll(List.of(failed("iuv1")));
+        Thread.sleep(GpdRetryQueue.backoff(1) + 600);
+
+        // the report is kept queued while the circuit breaker is open
+        assertEquals(0, retryQueue.drainDue());
+        assertEquals(1, retryQueue.getMetrics().getDepth());
+        verify(gpdClient, never()).report(any(), any(), any());
+    }
+
+    @Test
+    void enqueueAll_persistedBeforeReturning() throws Exception {
+        GpdRetryQueue retryQueue = spy(new GpdRetryQueue(gpdClient, ledger, "UseDevelopmentStorage=true", "pendingreports", 10, logger));
+        doNothing().when(retryQueue).execute(any(TableOperation.class));
+
+        retryQueue.enqueueAll(List.of(failed("iuv1"), reported("iuv2")));
+
+        // the report is written to the table, and still retried from memory
+        verify(retryQueue, times(1)).execute(any(TableOperation.class));
+        assertEquals(1, retryQueue.getMetrics().getPersisted());
+        assertEquals(1, retryQueue.getMetrics().getDepth());
+        assertEquals(0, retryQueue.getMetrics().getSpilled());
+    }
+
+    @Test
+    void enqueueAll_rejectedNotRetried() {
+        GpdRetryQueue retryQueue = new GpdRetryQueue(gpdClient, ledger, null, null, 10, logger);
+
+        retryQueue.enqueueAll(List.of(rejected("iuv1"), reported("iuv2")));
+
+        assertEquals(0, retryQueue.getMetrics().getDepth());
+        assertEquals(0, retryQueue.getMetrics().getEnqueued());
+    }
+
+    @Test
+    void drainDue_permanentNotRescheduled() throws InterruptedException {
+        GpdRetryQueue retryQueue = new GpdRetryQueue(gpdClient, ledger, null, null, 10, logger);
+        when(gpdClient.isAvailable()).thenReturn(true);
+        when(gpdClient.report("retryOrg", "iuv1", "1")).thenReturn(GpdClient.ReportResult.PERMANENT);
+
+        retryQueue.enqueueAll(List.of(failed("iuv1")));
+        Thread.sleep(GpdRetryQueue.backoff(1) + 600);
+
+        assertEquals(1, retryQueue.drainDue());
+        assertEquals(0, retryQueue.getMetrics().getDepth());
+    }
+
+    @Test
+    void enqueueAll_queueFullWithoutSpill() {
+        GpdRetryQueue retryQueue = new GpdRetryQueue(gpdClient, ledger, null, null, 1, logger);
+
+        retryQueue.enqueueAll(List.of(failed("iuv1"), failed("iuv2")));
+
+        RetryQueueMetrics metrics = retryQueue.getMetrics();
+        assertEquals(1, metrics.getDepth());
+        assertEquals(1, metrics.getDropped());
+    }
+
+    @Test
+    void backoff_growsWithAttempts() {
+        for (int attempts = 1; attempts < 40; attempts++) {
+            long delay = GpdRetryQueue.backoff(attempts);
+            assertTrue(delay > 0 && delay <= 300000);
+        }
+        assertTrue(GpdRetryQueue.backoff(5) >= 8000);
+    }
+
+    private static ReportOutcome failed(String iuv) {
+        return ReportOutcome.builder().organizationId("retryOrg").iuv(iuv).transferId("1").status(ReportOutcome.Status.FAILED).build();
+    }
+
+    private static ReportOutcome rejected(String iuv) {
+        return ReportOutcome.builder().organizationId("retryOrg").iuv(iuv).transferId("1").status(ReportOutcome.Status.REJECTED).build();
+    }
+
+    private static ReportOutcome reported(String iuv) {
+        return ReportOutcome.builder().organizationId("retryOrg").iuv(iuv).transferId("1").status(ReportOutcome.Status.REPORTED).build();
+    }
+}
@@ -0,0 +1,70 @@
+package it.gov.pagopa.reporting.service;
+
+import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.table.CloudTable;
+import it.gov.pagopa.reporting.model.ReportOutcome;
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import lombok.SneakyThrows;
+import org.junit.ClassRule;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers
+class ReportedTransferLedgerIntegrationTest {
+    @ClassRule
+    @Container
+    public static GenericContainer<?> azurite = new GenericContainer<>(
+            DockerImageName.parse("mcr.microsoft.com/azure-storage/azurite:latest")).withExposedPorts(10002);
+
+    Logger logger = Logger.getLogger("testlogging");
+
+    String storageConnectionString = String.format(
+            "DefaultEndpointsProtocol=http;AccountName=devstoreaccount1;AccountKey=Eby8vdM02xNOcqFlqUwJPLlmEtlCDXJ1OUzFT50uSRZ6IFsuFq2UVErCz4I6tq/K1SZFPTOtr/KBHBeksoGMGw==;TableEndpoint=http://%s:%s/devstoreaccount1",
+            azurite.getContainerIpAddress(), azurite.getMappedPort(10002));
+
+    String reportedTransfersTable = "reportedtransfers";
+
+    @Test
+    void markReported_survivesInstances() {
+        createTable();
+        ReportedIUVEventModel event = ReportedIUVEventModel.builder().domainId("77777777777").iuv("02030267565002997").idTransfer(2L).build();
+        ReportedIUVEventModel other = ReportedIUVEventModel.builder().domainId("77777777777").iuv("02030267565002999").idTransfer(1L).build();
+
+        ReportedTransferLedger ledger = new ReportedTransferLedger(storageConnectionString, reportedTransfersTable, logger);
+        assertEquals(2, ledger.filterNotReported(List.of(event, other)).size());
+        ledger.markReported(List.of(ReportOutcome.builder()
+                .organizationId("77777777777").iuv("02030267565002997").transferId("2")
+                .status(ReportOutcome.Status.REPORTED).build()));
+
+        // a new instance finds the transfer in the durable ledger
+        List<ReportedIUVEventModel> toReport = new ReportedTransferLedger(storageConnectionString, reportedTransfersTable, logger)
+                .filterNotReported(List.of(event, other));
+        assertEquals(List.of(other), toReport);
+    }
+
+    @Test
+    void filterNotReported_missingTableFailsOpen() {
+        ReportedIUVEventModel event = ReportedIUVEventModel.builder().domainId("88888888888").iuv("iuv").idTransfer(1L).build();
+
+        List<ReportedIUVEventModel> toReport = new ReportedTransferLedger(storageConnectionString, "missingtable", logger)
+                .filterNotReported(List.of(event));
+
+        assertTrue(toReport.contains(event));
+    }
+
+    @SneakyThrows
+    private void createTable() {
+        CloudTable table = CloudStorageAccount.parse(storageConnectionString).createCloudTableClient()
+                .getTableReference(reportedTransfersTable);
+        table.createIfNotExists();
+    }
+}
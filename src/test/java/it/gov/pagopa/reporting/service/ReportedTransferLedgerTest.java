@@ -0,0 +1,33 @@
+package it.gov.pagopa.reporting.service;
+
+import it.gov.pagopa.reporting.model.ReportOutcome;
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReportedTransferLedgerTest {
+
+    Logger logger = Logger.getLogger("testlogging");
+
+    @Test
+    void filterNotReported_inMemoryWindow() {
+        ReportedTransferLedger ledger = new ReportedTransferLedger(null, null, logger);
+        ReportedIUVEventModel first = ReportedIUVEventModel.builder().domainId("ledgerOrg").iuv("iuv1").idTransfer(1L).build();
+        ReportedIUVEventModel second = ReportedIUVEventModel.builder().domainId("ledgerOrg").iuv("iuv2").idTransfer(1L).build();
+
+        // duplicates inside the same batch are dropped
+        List<ReportedIUVEventModel> toReport = ledger.filterNotReported(List.of(first, second, first));
+        assertEquals(List.of(first, second), toReport);
+
+        ledger.markReported(List.of(
+                ReportOutcome.builder().organizationId("ledgerOrg").iuv("iuv1").transferId("1").status(ReportOutcome.Status.REPORTED).build(),
+                ReportOutcome.builder().organizationId("ledgerOrg").iuv("iuv2").transferId("1").status(ReportOutcome.Status.FAILED).build()));
+
+        // only the acknowledged transfer is skipped on redelivery
+        assertEquals(List.of(second), ledger.filterNotReported(List.of(first, second)));
+    }
+}
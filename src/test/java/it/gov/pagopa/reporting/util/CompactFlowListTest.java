@@ -0,0 +1,60 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompactFlowListTest {
+
+    @Test
+    void sortedNewestFirstIsStable() {
+        CompactFlowList flows = new CompactFlowList(1);
+        flows.add("a", 100);
+        flows.add("b", 300);
+        flows.add("c", 100);
+        flows.add("d", 200);
+        flows.add("e", 300);
+
+        CompactFlowList sorted = flows.sortedNewestFirst();
+
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < sorted.size(); i++) {
+            ids.append(sorted.getFlowId(i));
+        }
+        assertEquals("bedac", ids.toString());
+    }
+
+    @Test
+    void mergeNewestFirst() {
+        CompactFlowList first = new CompactFlowList();
+        first.add("a", 500);
+        first.add("b", 300);
+        first.add("c", 100);
+        CompactFlowList second = new CompactFlowList();
+        second.add("d", 400);
+        second.add("e", 300);
+        CompactFlowList third = new CompactFlowList();
+        third.add("f", 600);
+        third.add("g", 50);
+
+        CompactFlowList merged = CompactFlowList.mergeNewestFirst(List.of(first, new CompactFlowList(), second, third));
+
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < merged.size(); i++) {
+            ids.append(merged.getFlowId(i));
+        }
+        assertEquals("fadbecg", ids.toString());
+        assertEquals(0, CompactFlowList.mergeNewestFirst(List.of()).size());
+    }
+
+    @Test
+    void toJsonEscapesIds() {
+        CompactFlowList flows = new CompactFlowList();
+        flows.add("2024-01-01\"PSP\\1", 0);
+
+        assertEquals("[{\"flowId\":\"2024-01-01\\\"PSP\\\\1\",\"flowDate\":\"1970-01-01T00:00:00\"}]", flows.toJson());
+        assertEquals("[]", new CompactFlowList().toJson());
+    }
+}
@@ -0,0 +1,62 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.exception.DependencyUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGuardTest {
+
+    @Test
+    void call_opensAfterFailures() throws Exception {
+        DependencyGuard guard = new DependencyGuard("TEST",
+                new AdaptiveConcurrencyLimiter(10, 1, 100, 1000, 0.9),
+                new CircuitBreaker(10, 4, 50, 60000, 1));
+
+        assertEquals(200, guard.call(() -> 200, status -> status >= 500));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(503, guard.call(() -> 503, status -> status >= 500));
+        }
+
+        // 3 failures out of 4 calls open the circuit: the call is not even attempted
+        assertTrue(guard.isOpen());
+        assertEquals("OPEN", guard.getStatus().getCircuitState());
+        assertThrows(DependencyUnavailableException.class, () -> guard.call(() -> fail("called"), r -> false));
+    }
+
+    @Test
+    void call_halfOpenTrialCloses() throws Exception {
+        DependencyGuard guard = new DependencyGuard("TEST",
+                new AdaptiveConcurrencyLimiter(10, 1, 100, 1000, 0.9),
+                new CircuitBreaker(10, 1, 50, 0, 1));
+
+        assertThrows(IOException.class, () -> guard.call(() -> {
+            throw new IOException("timeout");
+        }, r -> false));
+
+        // open duration elapsed: one trial call is admitted and closes the circuit
+        assertEquals("HALF_OPEN", guard.getStatus().getCircuitState());
+        assertEquals("ok", guard.call(() -> "ok", r -> false));
+        assertEquals("CLOSED", guard.getStatus().getCircuitState());
+    }
+
+    @Test
+    void limiter_aimd() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 1000, 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        // fast success with the limiter in use: additive increase
+        limiter.onSample(1_000_000, false);
+        assertEquals(3, limiter.getLimit());
+
+        // slow call: multiplicative decrease
+        limiter.onSample(2_000_000_000L, false);
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
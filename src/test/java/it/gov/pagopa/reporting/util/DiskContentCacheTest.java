@@ -0,0 +1,105 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskContentCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void putAndGet() throws IOException {
+        DiskContentCache cache = new DiskContentCache("test", directory, 1024);
+        assertNull(cache.get("a"));
+
+        cache.put("a", content("0123456789"));
+
+        FlowContent cached = cache.get("a");
+        assertNotNull(cached);
+        assertEquals(10, cached.size());
+        assertEquals("0123456789", new String(cached.toByteArray(), StandardCharsets.UTF_8));
+        try (InputStream in = cached.openStream()) {
+            assertEquals("0123456789", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+        assertEquals(10L, cache.getStats().getBytes());
+    }
+
+    @Test
+    void leastRecentlyUsedEvicted() throws IOException {
+        DiskContentCache cache = new DiskContentCache("test", directory, 25);
+        cache.put("a", content("0123456789"));
+        cache.put("b", content("0123456789"));
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", content("0123456789"));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.getStats().getEvictions());
+        try (var files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void tooLargeNotStored() throws IOException {
+        DiskContentCache cache = new DiskContentCache("test", directory, 5);
+        cache.put("a", content("0123456789"));
+
+        assertNull(cache.get("a"));
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void expiredNotServed() throws IOException {
+        DiskContentCache cache = new DiskContentCache("test", directory, 1024, 60_000);
+        cache.put("a", content("0123456789"));
+        assertTrue(cache.contains("a"));
+
+        // written two minutes ago
+        try (var files = Files.list(directory)) {
+            Path file = files.findFirst().orElseThrow();
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+        }
+        DiskContentCache reloaded = new DiskContentCache("test", directory, 1024, 60_000);
+
+        assertFalse(reloaded.contains("a"));
+        assertNull(reloaded.get("a"));
+        assertEquals(1, reloaded.getStats().getExpirations());
+        assertEquals(0L, reloaded.getStats().getBytes());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void reloadedAfterRestart() throws IOException {
+        new DiskContentCache("test", directory, 1024).put("a", content("0123456789"));
+        Files.writeString(directory.resolve("partial.tmp"), "012");
+
+        DiskContentCache cache = new DiskContentCache("test", directory, 1024);
+
+        assertEquals(1, cache.getStats().getSize());
+        assertEquals("0123456789", new String(cache.get("a").toByteArray(), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(directory.resolve("partial.tmp")));
+    }
+
+    private static FlowContent content(String value) {
+        return SpillBuffer.of(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
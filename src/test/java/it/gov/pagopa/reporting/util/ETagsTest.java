@@ -0,0 +1,42 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagsTest {
+
+    @Test
+    void strongTag() {
+        String etag = ETags.of("<FlussoRiversamento/>");
+
+        assertEquals(34, etag.length());
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, ETags.of("<FlussoRiversamento/>"));
+        assertNotEquals(etag, ETags.of("<FlussoRiversamento />"));
+    }
+
+    @Test
+    void matches() {
+        String etag = ETags.of("content");
+
+        assertTrue(ETags.matches(etag, etag));
+        assertTrue(ETags.matches("\"a\", W/" + etag, etag));
+        assertTrue(ETags.matches("*", etag));
+        assertFalse(ETags.matches("\"a\"", etag));
+        assertFalse(ETags.matches(null, etag));
+    }
+
+    @Test
+    void flowListTag() {
+        CompactFlowList flows = new CompactFlowList();
+        flows.add("flow-1", 100);
+        CompactFlowList same = new CompactFlowList();
+        same.add("flow-1", 100);
+        CompactFlowList other = new CompactFlowList();
+        other.add("flow-1", 101);
+
+        assertEquals(flows.getETag(), same.getETag());
+        assertNotEquals(flows.getETag(), other.getETag());
+    }
+}
@@ -0,0 +1,66 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.Fdr3Metadata;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Fdr3ListParserTest {
+
+    private static final String BODY = "{\"metadata\":{\"pageSize\":50,\"pageNumber\":1,\"totPage\":2},\"count\":4,\"data\":["
+            + "{\"fdr\":\"flow-1\",\"pspId\":\"PSP\",\"revision\":1,\"published\":\"2024-01-02T08:00:00Z\",\"flowDate\":\"2024-01-01T10:00:00Z\",\"extra\":{\"a\":[1,2]}},"
+            + "{\"fdr\":\"flow-2\",\"flowDate\":\"2024-01-01T23:59:59.999Z\"},"
+            + "{\"fdr\":\"flow-3\",\"flowDate\":\"2024-01-02T01:00:00+02:00\"},"
+            + "{\"fdr\":\"flow-4\",\"flowDate\":\"2024-01-02T00:00:00Z\"},"
+            + "{\"fdr\":\"flow-5\"}"
+            + "]}";
+
+    @Test
+    void parseAll() throws IOException {
+        CompactFlowList flows = new CompactFlowList();
+        Fdr3Metadata metadata = Fdr3ListParser.parse(stream(BODY), null, flows);
+
+        assertEquals(2, metadata.getTotPage());
+        assertEquals(50, metadata.getPageSize());
+        assertEquals(4, flows.size());
+        assertEquals("flow-1", flows.getFlowId(0));
+        assertEquals("2024-01-01T10:00:00", IsoDateTime.formatLocal(flows.getFlowDate(0)));
+    }
+
+    @Test
+    void parseFilteredByUpperBound() throws IOException {
+        CompactFlowList flows = new CompactFlowList();
+        Fdr3ListParser.parse(stream(BODY), OffsetDateTime.parse("2024-01-01T23:59:59Z"), flows);
+
+        // flow-3 is on the 2nd in its own offset, but on the 1st in UTC
+        assertEquals(3, flows.size());
+        assertEquals("flow-2", flows.getFlowId(1));
+        assertEquals("flow-3", flows.getFlowId(2));
+        assertEquals("2024-01-02T01:00:00", IsoDateTime.formatLocal(flows.getFlowDate(2)));
+    }
+
+    @Test
+    void parseWithoutFlowId() throws IOException {
+        CompactFlowList flows = new CompactFlowList();
+        Fdr3ListParser.parse(stream("{\"data\":[{\"fdr\":null,\"flowDate\":\"2024-01-01T10:00:00Z\"},"
+                + "{\"flowDate\":\"2024-01-01T11:00:00Z\"},{\"fdr\":\"flow-1\",\"flowDate\":\"2024-01-01T12:00:00Z\"}]}"), null, flows);
+
+        assertEquals(1, flows.size());
+        assertEquals("flow-1", flows.getFlowId(0));
+    }
+
+    @Test
+    void parseMalformed() {
+        assertThrows(IOException.class, () -> Fdr3ListParser.parse(stream("[]"), null, new CompactFlowList()));
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
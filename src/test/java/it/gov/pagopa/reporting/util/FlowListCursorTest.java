@@ -0,0 +1,46 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FlowListCursorTest {
+
+    @Test
+    void continuesAfterLastFlow() {
+        CompactFlowList flows = list(new String[]{"a", "b", "c", "d", "e"}, new long[]{500, 400, 400, 400, 100});
+
+        String cursor = FlowListCursor.next(flows.slice(0, 2));
+
+        assertEquals(2, FlowListCursor.startIndex(flows, cursor));
+    }
+
+    @Test
+    void continuesAfterRefresh() {
+        CompactFlowList flows = list(new String[]{"a", "b", "c", "d", "e"}, new long[]{500, 400, 400, 400, 100});
+        String cursor = FlowListCursor.next(flows.slice(0, 3));
+
+        // a newer flow has been added and flow c has been removed
+        CompactFlowList refreshed = list(new String[]{"z", "a", "b", "d", "e"}, new long[]{600, 500, 400, 400, 100});
+
+        // restarts from the first flow with the date of c, so d is not skipped
+        assertEquals(2, FlowListCursor.startIndex(refreshed, cursor));
+    }
+
+    @Test
+    void invalidCursor() {
+        CompactFlowList flows = list(new String[]{"a"}, new long[]{500});
+
+        assertThrows(IllegalArgumentException.class, () -> FlowListCursor.startIndex(flows, "not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> FlowListCursor.startIndex(flows, "MnwxfGE"));
+    }
+
+    private static CompactFlowList list(String[] ids, long[] dates) {
+        CompactFlowList flows = new CompactFlowList();
+        for (int i = 0; i < ids.length; i++) {
+            flows.add(ids[i], dates[i]);
+        }
+        return flows;
+    }
+}
@@ -0,0 +1,44 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FlowPaymentIndexTest {
+
+    @Test
+    void build() throws Exception {
+        FlowPaymentIndex payments;
+        try (InputStream xml = getClass().getClassLoader().getResourceAsStream("dataOra##idPa##idFlow.xml")) {
+            payments = FlowPaymentIndex.build(xml, 1024);
+        }
+
+        assertEquals(3, payments.size());
+        assertEquals("[{\"iuv\":\"02030267565002999\",\"iur\":\"4613dac4329c4aa1b2b3a17af66ec4aa\",\"transferIndex\":2,"
+                        + "\"amount\":20.00,\"outcome\":\"0\",\"outcomeDate\":\"2021-07-26\"}]",
+                new String(payments.page(1, 2), StandardCharsets.UTF_8));
+        assertEquals("[]", new String(payments.page(3, 3), StandardCharsets.UTF_8));
+        assertThrows(IndexOutOfBoundsException.class, () -> payments.page(2, 4));
+    }
+
+    @Test
+    void build_spilled() throws Exception {
+        StringBuilder xml = new StringBuilder("<FlussoRiversamento><identificativoFlusso>flow-1</identificativoFlusso>");
+        for (int i = 0; i < 1000; i++) {
+            xml.append("<datiSingoliPagamenti><identificativoUnivocoVersamento>").append(i)
+                    .append("</identificativoUnivocoVersamento></datiSingoliPagamenti>");
+        }
+        xml.append("</FlussoRiversamento>");
+
+        FlowPaymentIndex payments = FlowPaymentIndex.build(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)), 1024);
+
+        assertEquals(1000, payments.size());
+        assertEquals("[{\"iuv\":\"998\"},{\"iuv\":\"999\"}]", new String(payments.page(998, 1000), StandardCharsets.UTF_8));
+        assertEquals("[{\"iuv\":\"0\"}]", new String(payments.page(0, 1), StandardCharsets.UTF_8));
+    }
+}
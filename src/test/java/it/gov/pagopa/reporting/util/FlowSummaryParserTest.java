@@ -0,0 +1,49 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.FlowSummary;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FlowSummaryParserTest {
+
+    @Test
+    void parse() throws Exception {
+        FlowSummary summary;
+        try (InputStream xml = getClass().getClassLoader().getResourceAsStream("dataOra##idPa##idFlow.xml")) {
+            summary = FlowSummaryParser.parse(xml);
+        }
+
+        assertEquals("2021-07-27SELBIT2B-S003014897", summary.getFlowId());
+        assertEquals("2021-07-27T12:00:07", summary.getFlowDate());
+        assertEquals("Bonifico SEPA-03268-A0EDT", summary.getRegulationId());
+        assertEquals("2021-07-27", summary.getRegulationDate());
+        assertEquals("SELBIT2B", summary.getPspId());
+        assertEquals("Banca Sella", summary.getPspName());
+        assertEquals("77777777777", summary.getOrganizationId());
+        assertEquals("COMUNE DI MILANO", summary.getOrganizationName());
+        assertEquals(3L, summary.getTotalPayments());
+        assertEquals(new BigDecimal("60.00"), summary.getTotalAmount());
+    }
+
+    @Test
+    void parse_stopsAtPayments() throws Exception {
+        // the payments are not read, so the truncated document is not an error
+        String xml = "<FlussoRiversamento xmlns=\"http://www.digitpa.gov.it/schemas/2011/Pagamenti/\">"
+                + "<identificativoFlusso>flow-1</identificativoFlusso>"
+                + "<numeroTotalePagamenti>1</numeroTotalePagamenti>"
+                + "<datiSingoliPagamenti><identificativoUnivocoVersamento>";
+
+        FlowSummary summary = FlowSummaryParser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("flow-1", summary.getFlowId());
+        assertEquals(1L, summary.getTotalPayments());
+        assertNull(summary.getTotalAmount());
+    }
+}
@@ -0,0 +1,30 @@
+package it.gov.pagopa.reporting.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Flows compressed with gzip, as published by FDR1, for the tests.
+ */
+public final class GzipFixtures {
+
+    private GzipFixtures() {
+    }
+
+    public static byte[] gzip(String xml) {
+        return gzip(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static byte[] gzip(byte[] xml) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(xml);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,52 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientProviderTest {
+
+    @Test
+    void readBody() throws Exception {
+        InputStream body = new ByteArrayInputStream("flow".getBytes(StandardCharsets.UTF_8));
+
+        assertArrayEquals("flow".getBytes(StandardCharsets.UTF_8), HttpClientProvider.readBody(body, body::readAllBytes, 1000));
+    }
+
+    @Test
+    void readBody_stalledBodyIsClosed() throws Exception {
+        StalledInputStream body = new StalledInputStream();
+
+        assertThrows(HttpTimeoutException.class, () -> HttpClientProvider.readBody(body, body::readAllBytes, 100));
+        // closing the body releases the blocked reader
+        assertTrue(body.closed.await(1, TimeUnit.SECONDS));
+    }
+
+    private static class StalledInputStream extends InputStream {
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public int read() throws IOException {
+            try {
+                closed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("closed");
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
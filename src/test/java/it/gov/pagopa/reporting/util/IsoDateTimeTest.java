@@ -0,0 +1,56 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsoDateTimeTest {
+
+    private static final DateTimeFormatter OUTPUT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    @Test
+    void sameAsJavaTime() {
+        Random random = new Random(42);
+        String[] offsets = {"Z", "+02:00", "-05:30"};
+        for (int i = 0; i < 10000; i++) {
+            OffsetDateTime expected = OffsetDateTime.ofInstant(
+                    java.time.Instant.ofEpochSecond(random.nextInt(Integer.MAX_VALUE), random.nextInt(1000) * 1_000_000L),
+                    ZoneOffset.of(offsets[i % offsets.length]));
+            String value = expected.toString();
+
+            assertEquals(expected.toEpochSecond(), IsoDateTime.toEpochSecond(value), value);
+            assertEquals(expected.format(OUTPUT_FORMATTER), IsoDateTime.formatLocal(IsoDateTime.toLocalEpochSecond(value)), value);
+        }
+    }
+
+    @Test
+    void fallbackFormats() {
+        // without seconds, not a fixed-format value
+        assertEquals(OffsetDateTime.parse("2024-02-29T10:15Z").toEpochSecond(), IsoDateTime.toEpochSecond("2024-02-29T10:15Z"));
+        assertThrows(DateTimeParseException.class, () -> IsoDateTime.toEpochSecond("2023-02-29T10:15:00Z"));
+        assertThrows(DateTimeParseException.class, () -> IsoDateTime.toEpochSecond("2024-01-01"));
+    }
+
+    @Test
+    void isDateTime() {
+        assertTrue(IsoDateTime.isDateTime("2024-02-29T10:15:00"));
+        assertTrue(IsoDateTime.isDateTime("2024-02-29T10:15:00.123"));
+        assertTrue(IsoDateTime.isDateTime("2024-02-29T10:15:00Z"));
+        assertTrue(IsoDateTime.isDateTime("2024-02-29T10:15:00.1+02:00"));
+        assertFalse(IsoDateTime.isDateTime(null));
+        assertFalse(IsoDateTime.isDateTime("2023-02-29T10:15:00"));
+        assertFalse(IsoDateTime.isDateTime("2024-02-29T10:15:00."));
+        assertFalse(IsoDateTime.isDateTime("2024-02-29"));
+        assertFalse(IsoDateTime.isDateTime("2024-02-29T10:15:00/../x"));
+        assertFalse(IsoDateTime.isDateTime("2024-02-29T10:15:00##org"));
+    }
+}
@@ -0,0 +1,36 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedExecutorTest {
+
+    @Test
+    void submit_differentLanesRunConcurrently() throws Exception {
+        KeyedExecutor executor = new KeyedExecutor(4, "test");
+        String blockedKey = "a";
+        String freeKey = "b";
+        while (executor.laneOf(freeKey) == executor.laneOf(blockedKey)) {
+            freeKey = freeKey + "b";
+        }
+
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> blocked = executor.submit(blockedKey, () -> release.await(5, TimeUnit.SECONDS));
+        Future<String> queued = executor.submit(blockedKey, () -> "queued");
+
+        // the lane of the blocked key has one task waiting, while another key is not delayed
+        assertEquals("free", executor.submit(freeKey, () -> "free").get(1, TimeUnit.SECONDS));
+        assertEquals(1, executor.getQueueDepths()[executor.laneOf(blockedKey)]);
+        assertFalse(queued.isDone());
+
+        release.countDown();
+        assertTrue(blocked.get());
+        assertEquals("queued", queued.get());
+        assertEquals(4, executor.getLaneCount());
+    }
+}
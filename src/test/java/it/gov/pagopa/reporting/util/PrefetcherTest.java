@@ -0,0 +1,57 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.PrefetchStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefetcherTest {
+
+    @Test
+    void usedAndWasted() {
+        List<String> loads = new ArrayList<>();
+        Prefetcher<String> prefetcher = new Prefetcher<>("test", Runnable::run, 2);
+
+        assertTrue(prefetcher.submit("a", () -> loads.add("a")));
+        assertFalse(prefetcher.submit("a", () -> loads.add("a")));
+        prefetcher.submit("b", () -> loads.add("b"));
+        prefetcher.markRequested("a");
+        prefetcher.markRequested("other");
+        prefetcher.submit("c", () -> loads.add("c"));
+        prefetcher.submit("d", () -> loads.add("d"));
+
+        PrefetchStats stats = prefetcher.getStats();
+        assertEquals(List.of("a", "b", "c", "d"), loads);
+        assertEquals(4, stats.getSubmitted());
+        assertEquals(4, stats.getLoaded());
+        assertEquals(1, stats.getUsed());
+        // b left the window of 2 without being requested
+        assertEquals(1, stats.getWasted());
+        assertEquals(2, stats.getPending());
+    }
+
+    @Test
+    void failedAndRejected() {
+        Prefetcher<String> prefetcher = new Prefetcher<>("test", Runnable::run, 10);
+        prefetcher.submit("a", () -> {
+            throw new IllegalStateException("down");
+        });
+        Executor saturated = command -> {
+            throw new RejectedExecutionException();
+        };
+        Prefetcher<String> rejecting = new Prefetcher<>("test", saturated, 10);
+
+        assertFalse(rejecting.submit("a", () -> "a"));
+        assertEquals(1, prefetcher.getStats().getFailed());
+        assertEquals(0, prefetcher.getStats().getPending());
+        assertEquals(1, rejecting.getStats().getRejected());
+        assertEquals(0, rejecting.getStats().getPending());
+    }
+}
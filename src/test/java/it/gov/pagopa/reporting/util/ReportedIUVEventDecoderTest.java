@@ -0,0 +1,46 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.ReportedIUVEventModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportedIUVEventDecoderTest {
+
+    @Test
+    void decode_onlyNeededFields() {
+        String event = "{\"IUV\":\"02030267565002997\",\"IUR\":\"63e54a6b51694167ad30dafa0cb3a3c7\",\"IMPORTO\":20.00,"
+                + "\"COD_ESITO\":0,\"ID_FLUSSO\":\"2021-07-27SELBIT2B-S003014897\",\"ID_DOMINIO\":\"77777777777\","
+                + "\"EXTRA\":{\"nested\":[1,2,{\"a\":\"b\"}]},\"ID_TRANSFER\":2}";
+
+        Optional<ReportedIUVEventModel> decoded = ReportedIUVEventDecoder.decode(event);
+
+        assertTrue(decoded.isPresent());
+        assertEquals("77777777777", decoded.get().getDomainId());
+        assertEquals("02030267565002997", decoded.get().getIuv());
+        assertEquals(2L, decoded.get().getIdTransfer());
+        assertNull(decoded.get().getAmount());
+        assertNull(decoded.get().getFlowId());
+    }
+
+    @Test
+    void decode_nullAndTextualTransfer() {
+        assertNull(ReportedIUVEventDecoder.decode("{\"ID_DOMINIO\":\"77777777777\",\"ID_TRANSFER\":null}").orElseThrow().getIdTransfer());
+        assertEquals(3L, ReportedIUVEventDecoder.decode("{\"ID_TRANSFER\":\"3\"}").orElseThrow().getIdTransfer());
+    }
+
+    @Test
+    void decode_malformed() {
+        long malformed = ReportedIUVEventDecoder.getMalformedCount();
+
+        assertTrue(ReportedIUVEventDecoder.decode("not a json").isEmpty());
+        assertTrue(ReportedIUVEventDecoder.decode("[1,2]").isEmpty());
+        assertTrue(ReportedIUVEventDecoder.decode("{\"IUV\":\"0203").isEmpty());
+        assertTrue(ReportedIUVEventDecoder.decode("{\"ID_TRANSFER\":\"one\"}").isEmpty());
+        assertTrue(ReportedIUVEventDecoder.decode(null).isEmpty());
+
+        assertEquals(malformed + 5, ReportedIUVEventDecoder.getMalformedCount());
+    }
+}
@@ -0,0 +1,44 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCompressionTest {
+
+    @Test
+    void acceptsGzip() {
+        assertTrue(ResponseCompression.isGzipAccepted("gzip"));
+        assertTrue(ResponseCompression.isGzipAccepted("deflate, GZIP;q=0.8, br"));
+        assertTrue(ResponseCompression.isGzipAccepted("*"));
+        assertFalse(ResponseCompression.isGzipAccepted("gzip;q=0"));
+        assertFalse(ResponseCompression.isGzipAccepted("gzip; Q=0.0"));
+        // an explicit gzip takes precedence over *, wherever it is listed
+        assertFalse(ResponseCompression.isGzipAccepted("*;q=0.5, gzip;q=0"));
+        assertTrue(ResponseCompression.isGzipAccepted("*;q=0, gzip"));
+        assertFalse(ResponseCompression.isGzipAccepted("br, *;q=0"));
+        assertFalse(ResponseCompression.isGzipAccepted("br, deflate"));
+        assertFalse(ResponseCompression.isGzipAccepted(null));
+    }
+
+    @Test
+    void gzipCompressedOnce() throws IOException {
+        String body = "<FlussoRiversamento>" + "<datiSingoliPagamenti/>".repeat(1000) + "</FlussoRiversamento>";
+        String etag = ETags.variant(ETags.of(body), ResponseCompression.GZIP);
+        long hits = ResponseCompression.getCacheStats().getHits();
+
+        byte[] compressed = ResponseCompression.gzip(etag, body);
+
+        assertSame(compressed, ResponseCompression.gzip(etag, body));
+        assertEquals(hits + 1, ResponseCompression.getCacheStats().getHits());
+        assertTrue(compressed.length < body.length() / 10);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(body, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void collapsesConcurrentCalls() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>("test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runConcurrently(flights, () -> {
+            loads.incrementAndGet();
+            release.await();
+            return "flow";
+        });
+        awaitCollapsed(flights, CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("flow", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(CALLERS, flights.getStats().getCalls());
+        assertEquals(0, flights.getStats().getInFlight());
+    }
+
+    @Test
+    void propagatesFailureToAllWaiters() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>("test");
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runConcurrently(flights, () -> {
+            release.await();
+            throw new IllegalStateException("FDR unavailable");
+        });
+        awaitCollapsed(flights, CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        assertEquals("next", flights.execute("key", () -> "next"));
+    }
+
+    private static List<Future<String>> runConcurrently(SingleFlight<String, String> flights,
+                                                        Callable<String> loader) {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> flights.execute("key", loader)));
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private static void awaitCollapsed(SingleFlight<String, String> flights, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flights.getStats().getCollapsed() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, flights.getStats().getCollapsed());
+    }
+}
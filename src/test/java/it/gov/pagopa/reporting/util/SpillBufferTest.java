@@ -0,0 +1,56 @@
+package it.gov.pagopa.reporting.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillBufferTest {
+
+    @Test
+    void keptInMemoryUnderThreshold() throws IOException {
+        SpillBuffer buffer = new SpillBuffer(16, "test");
+        try (buffer) {
+            buffer.write("0123456789".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertFalse(buffer.isSpilled());
+        assertEquals(10, buffer.size());
+        assertEquals("0123456789", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void spilledOverThreshold() throws IOException {
+        SpillBuffer buffer = new SpillBuffer(16, "test");
+        try (buffer) {
+            buffer.write("0123456789".getBytes(StandardCharsets.UTF_8));
+            buffer.write("0123456789".getBytes(StandardCharsets.UTF_8));
+            buffer.write('!');
+        }
+
+        assertTrue(buffer.isSpilled());
+        assertEquals(21, buffer.size());
+        for (int i = 0; i < 2; i++) {
+            try (InputStream in = buffer.openStream()) {
+                assertEquals("01234567890123456789!", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void releaseDeletesSpillFile() throws IOException {
+        SpillBuffer buffer = new SpillBuffer(4, "test");
+        try (buffer) {
+            buffer.write("0123456789".getBytes(StandardCharsets.UTF_8));
+        }
+        assertTrue(buffer.isSpilled());
+
+        buffer.release();
+        buffer.release();
+
+        assertThrows(IOException.class, buffer::openStream);
+    }
+}
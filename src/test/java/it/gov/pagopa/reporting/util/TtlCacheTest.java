@@ -0,0 +1,83 @@
+package it.gov.pagopa.reporting.util;
+
+import it.gov.pagopa.reporting.model.CacheStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TtlCacheTest {
+
+    @Test
+    void expiresAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        TtlCache<String, String> cache = new TtlCache<>("test", 10, now::get);
+
+        cache.put("short", "a", 1000);
+        cache.put("long", "b", 60000);
+        now.set(999);
+        assertEquals("a", cache.get("short"));
+        now.set(1000);
+        assertNull(cache.get("short"));
+        assertEquals("b", cache.get("long"));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getExpirations());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void peekNotCounted() {
+        AtomicLong now = new AtomicLong();
+        TtlCache<String, String> cache = new TtlCache<>("test", 10, now::get);
+
+        cache.put("a", "a", 1000);
+        assertEquals("a", cache.peek("a"));
+        assertNull(cache.peek("b"));
+        now.set(1000);
+        assertNull(cache.peek("a"));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(0, stats.getHits());
+        assertEquals(0, stats.getMisses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        TtlCache<String, String> cache = new TtlCache<>("test", 2);
+
+        cache.put("a", "a", 60000);
+        cache.put("b", "b", 60000);
+        cache.get("a");
+        cache.put("c", "c", 60000);
+
+        assertNull(cache.get("b"));
+        assertEquals("a", cache.get("a"));
+        assertEquals("c", cache.get("c"));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void evictsByWeight() {
+        TtlCache<String, String> cache = new TtlCache<>("test", 10, 10, String::length);
+
+        cache.put("a", "1234", 60000);
+        cache.put("b", "1234", 60000);
+        cache.get("a");
+        cache.put("c", "1234", 60000);
+        cache.put("d", "12345678901", 60000);
+
+        assertNull(cache.get("b"));
+        assertNull(cache.get("d"));
+        assertEquals("1234", cache.get("a"));
+        assertEquals("1234", cache.get("c"));
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getEvictions());
+        assertEquals(8L, stats.getBytes());
+        assertEquals(10L, stats.getMaxBytes());
+    }
+}